@@ -0,0 +1,60 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link QRCode#createMatrix(String)} across payload lengths, error correction levels and encoders.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"33", "120", "500"})
+    public int length;
+
+    @Param({"L", "M", "Q", "H"})
+    public String level;
+
+    @Param({"zxing", "fast", "fast-heuristic"})
+    public String encoder;
+
+    private String payload;
+    private QRCode code;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001");
+        while (sb.length() < length) {
+            sb.append("/EPL-AGT-EVLIM").append(sb.length());
+        }
+        payload = sb.substring(0, length);
+        code = QRCode.from(payload).withSize(400, 400).withErrorCorrection(ErrorCorrectionLevel.valueOf(level));
+        if (!"zxing".equals(encoder)) {
+            code.withFastEncoder("fast-heuristic".equals(encoder));
+        }
+    }
+
+    @Benchmark
+    public BitMatrix createMatrix() throws WriterException {
+        return code.createMatrix(payload);
+    }
+}
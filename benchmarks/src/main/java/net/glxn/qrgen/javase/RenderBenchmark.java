@@ -0,0 +1,111 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rasterizing, drawing the label text and PNG encoding of a 400x400 label, each stage on its own. The pooled variants
+ * draw into the thread's packed 1-bit raster, run them with <code>-prof gc</code> to compare allocations per label.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    private static final String PAYLOAD = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001";
+
+    private final LabelText latin = new LabelText("EQ", PAYLOAD, "Machine 001-001");
+    private final LabelText thai = new LabelText("EQ", PAYLOAD, "เครื่องบรรจุขวดอัตโนมัติ สายการผลิตที่ 1");
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+    private final LabelRenderer renderer = new LabelRenderer(QRCode.DEFAULT_CONFIG);
+    private BitMatrix matrix;
+    private BufferedImage label;
+    private BufferedImage packedLabel;
+
+    @Setup
+    public void setUp() throws Exception {
+        matrix = QRCode.from(PAYLOAD).withSize(400, 400).createMatrix(PAYLOAD);
+        packedLabel = BinaryRaster.create(matrix.getWidth(), matrix.getHeight(), 0xFFFFFFFF, 0xFF000000);
+        BinaryRaster.draw(matrix, packedLabel, null);
+        renderer.drawLabel(packedLabel, latin);
+        label = toRgb(packedLabel);
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        rgb.getGraphics().drawImage(image, 0, 0, null);
+        return rgb;
+    }
+
+    @Benchmark
+    public BufferedImage matrixToImageWriter() {
+        return MatrixToImageWriter.toBufferedImage(matrix);
+    }
+
+    @Benchmark
+    public BufferedImage binaryRasterPooled() {
+        return renderer.rasterizePooled(matrix);
+    }
+
+    @Benchmark
+    public BufferedImage labelRenderer() {
+        return renderer.render(matrix, latin);
+    }
+
+    @Benchmark
+    public BufferedImage labelRendererThai() {
+        return renderer.render(matrix, thai);
+    }
+
+    @Benchmark
+    public BufferedImage labelRendererPooled() {
+        BufferedImage image = renderer.rasterizePooled(matrix);
+        renderer.drawLabel(image, latin);
+        return image;
+    }
+
+    @Benchmark
+    public int imageIoPng() throws IOException {
+        out.reset();
+        ImageIO.write(label, "png", out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int pngEncoder() throws IOException {
+        out.reset();
+        PngEncoder.DEFAULT.write(label, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int pngEncoderPacked() throws IOException {
+        out.reset();
+        PngEncoder.DEFAULT.write(packedLabel, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int fullLabel() {
+        return QRCode.from(PAYLOAD).withSize(400, 400).withLabel(thai).stream().size();
+    }
+}
@@ -0,0 +1,84 @@
+package net.glxn.qrgen.javase;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of EQ workbooks that are synthesized at setup, so the suite runs offline. The rows are streamed from
+ * {@link XlsxRowReader} rather than collected with {@link QRCode#readExcelFile}, so holding 100000 rows in a list
+ * does not show in the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class XlsxBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private File workbook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workbook = File.createTempFile("EQListforBenchmark", ".xlsx");
+        SXSSFWorkbook wb = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = wb.createSheet("EQ");
+            Row header = sheet.createRow(0);
+            String[] titles = {"Plant", "X", "Y", "Equipment", "Description"};
+            for (int i = 0; i < titles.length; i++) {
+                header.createCell(i).setCellValue(titles[i]);
+            }
+            for (int r = 1; r <= rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("BEB" + (r % 9));
+                row.createCell(1).setCellValue(1000 + r % 50);
+                row.createCell(2).setCellValue(r % 3);
+                row.createCell(3).setCellValue("EPL-AGT-EVLIM" + r);
+                row.createCell(4).setCellValue(r % 2 == 0 ? "Machine " + r : "เครื่องจักร " + r);
+            }
+            try (FileOutputStream out = new FileOutputStream(workbook)) {
+                wb.write(out);
+            }
+        } finally {
+            wb.dispose();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workbook.delete();
+    }
+
+    @Benchmark
+    public int readRows() {
+        int count = 0;
+        XlsxRowReader reader = new XlsxRowReader(workbook.getAbsolutePath());
+        while (reader.hasNext()) {
+            count += reader.next().length();
+        }
+        return count;
+    }
+}
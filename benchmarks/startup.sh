@@ -0,0 +1,50 @@
+#!/bin/bash
+# Cold start latency of one label per JVM, with and without the class data sharing archive.
+#
+#   mvn clean package -Pappcds
+#   benchmarks/startup.sh [runs]
+#
+# Every invocation is a new JVM writing one label into a temporary directory; the script prints the average and
+# minimum wall time of each way of starting it.
+
+cd "$(dirname "$0")/.." || exit 1
+runs=${1:-10}
+jar=$(ls target/QRGenerate-*.jar 2>/dev/null | grep -v -e sources -e javadoc | head -1)
+jsa=target/QRGenerate.jsa
+row='EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001'
+out=$(mktemp -d)
+trap 'rm -rf "$out"' EXIT
+
+if [ -z "$jar" ]; then
+    echo "No jar in target/, run mvn clean package -Pappcds first" >&2
+    exit 1
+fi
+
+measure() {
+    local label=$1
+    shift
+    local total=0 min=
+    for i in $(seq "$runs"); do
+        local start end ms
+        start=$(date +%s%N)
+        java "$@" > /dev/null 2>&1
+        end=$(date +%s%N)
+        ms=$(( (end - start) / 1000000 ))
+        total=$(( total + ms ))
+        if [ -z "$min" ] || [ "$ms" -lt "$min" ]; then
+            min=$ms
+        fi
+    done
+    printf '%-28s avg %5d ms   min %5d ms\n' "$label" $(( total / runs )) "$min"
+}
+
+measure "QR" -Djava.awt.headless=true -jar "$jar" QR "$row" "$out/"
+measure "SingleLabel" -cp "$jar" net.glxn.qrgen.javase.SingleLabel "$row" "$out/"
+if [ -f "$jsa" ]; then
+    measure "SingleLabel + CDS" -XX:SharedArchiveFile="$jsa" \
+        -cp "$jar" net.glxn.qrgen.javase.SingleLabel "$row" "$out/"
+    measure "SingleLabel + CDS + C1" -XX:SharedArchiveFile="$jsa" -XX:TieredStopAtLevel=1 \
+        -cp "$jar" net.glxn.qrgen.javase.SingleLabel "$row" "$out/"
+else
+    echo "No $jsa, build it with mvn clean package -Pappcds" >&2
+fi
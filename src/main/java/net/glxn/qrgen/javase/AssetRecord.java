@@ -0,0 +1,142 @@
+package net.glxn.qrgen.javase;
+
+/**
+ * One row of an equipment or functional location list, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001.
+ * <p>
+ * The row is read in a single pass over its characters, without regular expressions or intermediate arrays, and
+ * rejected with the exact reason when it does not have the expected shape.
+ * </p>
+ */
+public class AssetRecord {
+
+    private static final int SEGMENTS = 5;
+
+    private final String type;
+    private final String plant;
+    private final String section;
+    private final String subSection;
+    private final String equipmentId;
+    private final String machineName;
+    private final String code;
+
+    /**
+     * @param type        the record type, e.g. EQ or FL
+     * @param plant       the plant, e.g. BEB1
+     * @param section     the third segment of the code, e.g. 1000
+     * @param subSection  the fourth segment of the code, e.g. 0
+     * @param equipmentId the equipment id, e.g. EPL-AGT-EVLIM00001
+     * @param machineName the machine name, e.g. Machine 001-001
+     */
+    public AssetRecord(String type, String plant, String section, String subSection, String equipmentId,
+                       String machineName) {
+        this(type, plant, section, subSection, equipmentId, machineName,
+                type + '/' + plant + '/' + section + '/' + subSection + '/' + equipmentId);
+    }
+
+    private AssetRecord(String type, String plant, String section, String subSection, String equipmentId,
+                        String machineName, String code) {
+        this.type = type;
+        this.plant = plant;
+        this.section = section;
+        this.subSection = subSection;
+        this.equipmentId = equipmentId;
+        this.machineName = machineName;
+        this.code = code;
+    }
+
+    /**
+     * Parses a row. The part before the first comma is the code, made of exactly five "/" separated segments, and
+     * the part up to the next comma is the machine name.
+     *
+     * @param text the row text
+     * @return the record
+     * @throws IllegalArgumentException naming the row and what is wrong with it
+     */
+    public static AssetRecord parse(String text) {
+        int comma = text.indexOf(',');
+        if (comma < 0) {
+            throw invalid(text, "no ',' between the code and the machine name");
+        }
+        String[] segments = new String[SEGMENTS];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= comma; i++) {
+            if (i == comma || text.charAt(i) == '/') {
+                if (count == SEGMENTS) {
+                    throw invalid(text, "the code has more than " + SEGMENTS + " '/' separated segments");
+                }
+                segments[count++] = text.substring(start, i);
+                start = i + 1;
+            }
+        }
+        if (count < SEGMENTS) {
+            throw invalid(text, "the code has " + count + " '/' separated segments, expected " + SEGMENTS);
+        }
+        int end = text.indexOf(',', comma + 1);
+        if (end < 0) {
+            end = text.length();
+        }
+        if (end == comma + 1) {
+            throw invalid(text, "the machine name is empty");
+        }
+        return new AssetRecord(segments[0], segments[1], segments[2], segments[3], segments[4],
+                text.substring(comma + 1, end), text.substring(0, comma));
+    }
+
+    private static IllegalArgumentException invalid(String text, String reason) {
+        return new IllegalArgumentException("Invalid row \"" + text + "\": " + reason);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getPlant() {
+        return plant;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getSubSection() {
+        return subSection;
+    }
+
+    public String getEquipmentId() {
+        return equipmentId;
+    }
+
+    public String getMachineName() {
+        return machineName;
+    }
+
+    /**
+     * @return the code encoded in the QR, type/plant/section/sub section/equipment id
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return the name of the label file without extension, e.g. 1000-0EPL-AGT-EVLIM00001-Machine 001-001. Only the
+     * part of the machine name before a "/" is used so the file stays in the destination directory.
+     */
+    public String getName() {
+        int slash = machineName.indexOf('/');
+        String name = slash < 0 ? machineName : machineName.substring(0, slash);
+        return section + '-' + subSection + equipmentId + '-' + name;
+    }
+
+    /**
+     * @return the text drawn around the QR
+     */
+    public LabelText toLabelText() {
+        return new LabelText(type, code, machineName);
+    }
+
+    @Override
+    public String toString() {
+        return code + ',' + machineName;
+    }
+}
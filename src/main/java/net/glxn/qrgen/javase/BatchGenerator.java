@@ -0,0 +1,667 @@
+package net.glxn.qrgen.javase;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generates the labels for a stream of rows on a bounded pool of workers.
+ * <p>
+ * Rows are encoded and rendered concurrently, but their results are consumed in input order, so the console output
+ * and the {@link BatchReport} do not depend on the number of workers. At most twice the worker count of rows are in
+ * flight at any time, and rows are pulled from the input only as workers free up.
+ * </p>
+ * <p>
+ * When the options name a {@link Shard}, rows of other shards are skipped before they are parsed, and the shard
+ * writes a {@link ShardRecord} of the rows it handled and the JSON of its {@link RunStats} next to its outputs.
+ * </p>
+ * <p>
+ * A run into a directory logs every finished row to a {@link Journal} there. With the resume option, rows the
+ * journal of an earlier, interrupted attempt records as finished are parsed but not encoded or written again.
+ * Batches in this process that share a journal or manifest, the same destination, list name and shard, run one
+ * after another.
+ * </p>
+ * <p>
+ * Unless the write queue is disabled, finished labels are handed to a {@link WriteBehind} stage so workers do not
+ * wait on the destination. A row is only counted, reported to the listener and recorded once its label is stored,
+ * and a row whose label cannot be written fails like a row that cannot be rendered. Failed writes of print sheets
+ * end up in {@link BatchReport#getWriteErrors()}. Labels for a {@link ZipSink} are written by the thread running the
+ * batch in input order instead, so the archive does not depend on the number of workers.
+ * </p>
+ * <p>
+ * With a verify rate above 0, a sample of the generated labels is checked by a {@link LabelVerifier} on its own
+ * threads while the batch goes on, and its findings end up in {@link BatchReport#getVerifyFailures()}.
+ * </p>
+ * <p>
+ * With a print layout, workers render labels to images and the thread running the batch imposes them in input order
+ * onto print sheets with a {@link SheetWriter}, writing a PNG per full page instead of a file per label.
+ * </p>
+ */
+public class BatchGenerator {
+
+    /**
+     * Budget of rendered image bytes per cache entry, a 400x400 label encodes to a few kilobytes.
+     */
+    private static final long IMAGE_BYTES_PER_ENTRY = 8 * 1024;
+
+    /**
+     * Name of the JSON stats a shard writes next to its outputs, followed by the shard suffix.
+     */
+    public static final String STATS_FILE_NAME = ".qrgen-stats";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Locks by destination and state suffix, a journal is truncated and a manifest pruned by the batch using it, so
+     * batches sharing them run one after another.
+     */
+    private static final ConcurrentMap<String, Lock> STATE_LOCKS = new ConcurrentHashMap<>();
+
+    private final OutputSink sink;
+    private final GeneratorOptions options;
+    private final LabelListener listener;
+
+    /**
+     * @param sink    where finished labels are written, it is not closed by the generator
+     * @param options the options of the run
+     */
+    public BatchGenerator(OutputSink sink, GeneratorOptions options) {
+        this(sink, options, null);
+    }
+
+    /**
+     * @param sink     where finished labels are written, it is not closed by the generator
+     * @param options  the options of the run
+     * @param listener told the result of every row in input order, may be null
+     */
+    public BatchGenerator(OutputSink sink, GeneratorOptions options, LabelListener listener) {
+        this.sink = sink;
+        this.options = options;
+        this.listener = listener;
+    }
+
+    /**
+     * Generates a label for every row.
+     *
+     * @param rows the rows, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001
+     * @return the report of the run
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a row
+     * @throws IOException          if the manifest of an incremental run cannot be read or written
+     * @throws IllegalArgumentException if the run is incremental but the sink is not a {@link DirectorySink}
+     */
+    public BatchReport run(Iterator<String> rows) throws InterruptedException, IOException {
+        return run(rows, new RunStats());
+    }
+
+    /**
+     * Generates a label for every row, recording stage timings.
+     *
+     * @param rows  the rows, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001
+     * @param stats the stats to record into, shared with the row source so parsing is included
+     * @return the report of the run
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a row
+     * @throws IOException          if the manifest of an incremental run or the journal cannot be read or written
+     */
+    public BatchReport run(Iterator<String> rows, RunStats stats) throws InterruptedException, IOException {
+        return execute(rows, stats);
+    }
+
+    /**
+     * Generates a label for every record, recording stage timings.
+     *
+     * @param records the records
+     * @param stats   the stats to record into
+     * @return the report of the run
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a record
+     * @throws IOException          if the manifest of an incremental run or the journal cannot be read or written
+     */
+    public BatchReport runRecords(Iterator<AssetRecord> records, RunStats stats)
+            throws InterruptedException, IOException {
+        return execute(records, stats);
+    }
+
+    /**
+     * Runs a batch of rows, given as row text or as {@link AssetRecord}s, once no other batch uses its journal or
+     * manifest.
+     */
+    private BatchReport execute(Iterator<?> rows, RunStats stats) throws InterruptedException, IOException {
+        Lock lock = stateLock();
+        if (lock == null) {
+            return executeBatch(rows, stats);
+        }
+        lock.lockInterruptibly();
+        try {
+            return executeBatch(rows, stats);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private BatchReport executeBatch(Iterator<?> rows, RunStats stats) throws InterruptedException, IOException {
+        BatchReport report = new BatchReport();
+        report.setStats(stats);
+        EncodeCache cache = options.getCacheSize() > 0
+                ? new EncodeCache(options.getCacheSize(), options.getCacheSize() * IMAGE_BYTES_PER_ENTRY) : null;
+        report.setCache(cache);
+        Manifest manifest = options.isIncremental() ? loadManifest() : null;
+        Shard shard = options.getShard();
+        ShardRecord record = shard != null ? new ShardRecord(shard) : null;
+        Journal journal = openJournal();
+        WriteBehind writer = options.getWriteQueue() > 0 && !isOrdered()
+                ? new WriteBehind(sink, options.getWriteQueue(), options.getIoThreads(), stats) : null;
+        LabelVerifier verifier = options.getVerifyRate() > 0 ? new LabelVerifier(options.getVerifyThreads(),
+                options.getVerifyRate(), options.getVerifyQuietZone()) : null;
+        SheetWriter sheets = options.getPrintLayout() != null ? new SheetWriter(options.getPrintLayout(),
+                options.getRenderOptions().getPngEncoder(), shard == null ? "sheet" : "sheet" + shard.getSuffix())
+                : null;
+        final Run run = new Run(report, stats, cache, manifest, journal, writer, verifier, record, sheets);
+        ExecutorService executor = newExecutor(report);
+        int window = options.getThreads() * 2;
+        Deque<Pending> pending = new ArrayDeque<>(window);
+        try {
+            for (int row = 0; rows.hasNext(); row++) {
+                final Object item = rows.next();
+                final String text = item.toString();
+                if (shard != null && !shard.owns(row, text)) {
+                    report.addOtherShard();
+                    continue;
+                }
+                if (pending.size() == window) {
+                    run.complete(pending.poll());
+                }
+                final int index = row;
+                Future<Outcome> result = executor.submit(new Callable<Outcome>() {
+                    @Override
+                    public Outcome call() throws Exception {
+                        return run.generate(index, item);
+                    }
+                });
+                pending.add(new Pending(row, text, result));
+            }
+            while (!pending.isEmpty()) {
+                run.complete(pending.poll());
+            }
+            run.settleAll();
+            if (sheets != null && !sheets.isEmpty()) {
+                run.writePage();
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                try {
+                    if (writer != null) {
+                        writer.shutdown();
+                    }
+                } finally {
+                    if (verifier != null) {
+                        verifier.close();
+                        report.setVerified(verifier.getVerified());
+                    }
+                }
+            } finally {
+                stats.finish();
+                if (journal != null) {
+                    journal.close();
+                }
+            }
+        }
+        if (manifest != null) {
+            report.setPruned(manifest.prune());
+            manifest.save();
+        }
+        if (record != null) {
+            sink.write(record.getFileName(), record.toBytes());
+            StringWriter json = new StringWriter();
+            stats.writeJson(json);
+            sink.write(STATS_FILE_NAME + shard.getSuffix() + ".json", json.toString().getBytes(UTF_8));
+        }
+        return report;
+    }
+
+    /**
+     * @return true if the order of the writes shows in the output, as the entries of a {@link ZipSink} do, so labels
+     * are written by the thread running the batch in input order rather than by the workers
+     */
+    private boolean isOrdered() {
+        return sink instanceof ZipSink;
+    }
+
+    /**
+     * @return the lock of the journal and manifest this batch uses, or null if it uses neither
+     */
+    private Lock stateLock() throws IOException {
+        if (!(sink instanceof DirectorySink)
+                || !options.isIncremental() && (!options.isJournal() || options.getPrintLayout() != null)) {
+            return null;
+        }
+        String key = ((DirectorySink) sink).file(Journal.FILE_NAME + stateSuffix()).getCanonicalPath();
+        Lock lock = STATE_LOCKS.get(key);
+        if (lock == null) {
+            Lock created = new ReentrantLock();
+            lock = STATE_LOCKS.putIfAbsent(key, created);
+            if (lock == null) {
+                lock = created;
+            }
+        }
+        return lock;
+    }
+
+    private Journal openJournal() throws IOException {
+        if (!(sink instanceof DirectorySink)) {
+            if (options.isResume()) {
+                throw new IllegalArgumentException("Resumed runs need a directory destination");
+            }
+            return null;
+        }
+        if (!options.isJournal() || options.getPrintLayout() != null) {
+            if (options.isResume()) {
+                throw new IllegalArgumentException("Resumed runs need the journal");
+            }
+            return null;
+        }
+        return Journal.open(((DirectorySink) sink).getDestination(), Journal.FILE_NAME + stateSuffix(),
+                options.isResume());
+    }
+
+    private Manifest loadManifest() throws IOException {
+        if (!(sink instanceof DirectorySink)) {
+            throw new IllegalArgumentException("Incremental runs need a directory destination");
+        }
+        return Manifest.load(((DirectorySink) sink).getDestination(), Manifest.FILE_NAME + stateSuffix());
+    }
+
+    /**
+     * @return the suffix of the manifest and journal, naming the list and the shard they belong to if any
+     */
+    private String stateSuffix() {
+        Shard shard = options.getShard();
+        return (options.getListName() == null ? "" : "." + options.getListName())
+                + (shard == null ? "" : shard.getSuffix());
+    }
+
+    /**
+     * The state of one run, shared by the workers, the I/O threads and the thread consuming the results.
+     */
+    private class Run {
+
+        private final BatchReport report;
+        private final RunStats stats;
+        private final EncodeCache cache;
+        private final Manifest manifest;
+        private final Journal journal;
+        private final WriteBehind writer;
+        private final LabelVerifier verifier;
+        private final ShardRecord record;
+        private final SheetWriter sheets;
+        /**
+         * Rows whose result is known, in input order, waiting for their queued write to finish.
+         */
+        private final Deque<Pending> settling = new ArrayDeque<>();
+
+        Run(BatchReport report, RunStats stats, EncodeCache cache, Manifest manifest, Journal journal,
+            WriteBehind writer, LabelVerifier verifier, ShardRecord record, SheetWriter sheets) {
+            this.report = report;
+            this.stats = stats;
+            this.cache = cache;
+            this.manifest = manifest;
+            this.journal = journal;
+            this.writer = writer;
+            this.verifier = verifier;
+            this.record = record;
+            this.sheets = sheets;
+        }
+
+        /**
+         * Encodes and renders a row on a worker. With write-behind the label is only queued, the manifest is updated
+         * once the I/O thread has stored it and the row is settled by {@link #complete} after that.
+         */
+        Outcome generate(final int row, Object item) throws IOException, InterruptedException {
+            if (item instanceof String && ((String) item).length() == 0) {
+                return null;
+            }
+            long start = System.nanoTime();
+            LabelJob job = item instanceof AssetRecord ? LabelJob.of((AssetRecord) item) : LabelJob.parse((String) item);
+            stats.record(Stage.ROW_PARSE, start);
+            RenderOptions render = options.getRenderOptions();
+            final String name = job.getFileName(render);
+            final String hash = manifest != null || journal != null ? job.digest(render) : null;
+            if (journal != null && journal.isFinished(name, hash)) {
+                if (manifest != null) {
+                    manifest.put(name, hash);
+                }
+                return new Outcome(name, hash, ShardRecord.RESUMED);
+            }
+            if (manifest != null && manifest.isUpToDate(name, hash)) {
+                return new Outcome(name, hash, ShardRecord.UNCHANGED);
+            }
+            if (sheets != null) {
+                return new Outcome(name, hash, ShardRecord.GENERATED, job.code(render, cache, stats).image());
+            }
+            final byte[] data = job.render(render, cache, stats);
+            if (verifier != null) {
+                verifier.submit(row, name, job, render, cache, data, report);
+            }
+            if (isOrdered()) {
+                return new Outcome(name, hash, ShardRecord.GENERATED, data);
+            }
+            if (writer != null) {
+                QueuedWrite write = new QueuedWrite(name, hash, data.length);
+                writer.submit(name, data, write);
+                return new Outcome(name, hash, ShardRecord.GENERATED, null, write);
+            }
+            write(name, hash, data);
+            return new Outcome(name, hash, ShardRecord.GENERATED);
+        }
+
+        private void write(String name, String hash, byte[] data) throws IOException {
+            long start = System.nanoTime();
+            sink.write(name, data);
+            stats.record(Stage.FILE_WRITE, start);
+            stored(name, hash, data.length);
+        }
+
+        private void stored(String name, String hash, int size) {
+            stats.recordOutput(size);
+            if (manifest != null) {
+                manifest.put(name, hash);
+            }
+        }
+
+        /**
+         * Takes the result of the next row in input order on the thread running the batch, then settles the rows
+         * whose writes are done. Rows wait for their write at most as long as the write queue is.
+         */
+        void complete(Pending pending) throws InterruptedException, IOException {
+            try {
+                pending.outcome = pending.result.get();
+            } catch (ExecutionException e) {
+                pending.failure = e.getCause();
+            }
+            settling.add(pending);
+            while (!settling.isEmpty() && (settling.size() > options.getWriteQueue() || isWritten(settling.peek()))) {
+                settle(settling.poll());
+            }
+        }
+
+        /**
+         * Settles every remaining row, waiting for their writes.
+         */
+        void settleAll() throws InterruptedException, IOException {
+            while (!settling.isEmpty()) {
+                settle(settling.poll());
+            }
+        }
+
+        private boolean isWritten(Pending pending) {
+            return pending.outcome == null || pending.outcome.write == null || pending.outcome.write.isDone();
+        }
+
+        /**
+         * Counts, reports and records a row once its label is stored, storing it first for an ordered sink.
+         */
+        private void settle(Pending pending) throws InterruptedException, IOException {
+            report.addRow();
+            Outcome outcome = pending.outcome;
+            Throwable failure = pending.failure;
+            if (outcome != null && outcome.write != null) {
+                failure = outcome.write.await();
+            } else if (outcome != null && outcome.data != null) {
+                try {
+                    write(outcome.name, outcome.hash, outcome.data);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                report.addFailure(pending.row, pending.text, failure);
+                notify(pending, null, LabelResult.Status.FAILED, failure);
+                if (record != null) {
+                    record.add(pending.row, pending.text, ShardRecord.FAILED, null);
+                }
+                if (journal != null) {
+                    journal.append(pending.row, outcome != null ? outcome.hash : null, ShardRecord.FAILED,
+                            String.valueOf(failure.getMessage()));
+                }
+                return;
+            }
+            if (outcome == null) {
+                if (record != null) {
+                    record.add(pending.row, pending.text, ShardRecord.EMPTY, null);
+                }
+                notify(pending, null, LabelResult.Status.EMPTY, null);
+                return;
+            }
+            switch (outcome.status) {
+                case ShardRecord.RESUMED:
+                    report.addResumed();
+                    notify(pending, outcome.name, LabelResult.Status.RESUMED, null);
+                    break;
+                case ShardRecord.UNCHANGED:
+                    report.addSkipped();
+                    notify(pending, outcome.name, LabelResult.Status.UNCHANGED, null);
+                    break;
+                default:
+                    report.addGenerated();
+                    notify(pending, outcome.image != null ? impose(outcome.image) : outcome.name,
+                            LabelResult.Status.GENERATED, null);
+                    break;
+            }
+            if (record != null) {
+                record.add(pending.row, pending.text, outcome.status, outcome.name);
+            }
+            if (journal != null && !ShardRecord.RESUMED.equals(outcome.status)) {
+                journal.append(pending.row, outcome.hash, outcome.status, outcome.name);
+            }
+        }
+
+        /**
+         * Places a label on the current print sheet, writing the sheet once it is full.
+         *
+         * @return the file name of the sheet holding the label
+         */
+        private String impose(BufferedImage image) throws InterruptedException {
+            long start = System.nanoTime();
+            String page = sheets.add(image);
+            stats.record(Stage.SHEET_IMPOSE, start);
+            stats.recordOutput(0);
+            if (sheets.isFull()) {
+                writePage();
+            }
+            return page;
+        }
+
+        /**
+         * Encodes the current print sheet and hands it to the write-behind stage or the sink.
+         */
+        void writePage() throws InterruptedException {
+            final String name = sheets.getPageName();
+            long start = System.nanoTime();
+            final byte[] data;
+            try {
+                data = sheets.finishPage();
+            } catch (IOException e) {
+                report.addWriteError(name, e);
+                return;
+            }
+            stats.record(Stage.PNG_ENCODE, start);
+            if (writer != null) {
+                writer.submit(name, data, new WriteBehind.Callback() {
+                    @Override
+                    public void written(IOException error) {
+                        if (error == null) {
+                            stats.recordBytes(data.length);
+                        } else {
+                            report.addWriteError(name, error);
+                        }
+                    }
+                });
+                return;
+            }
+            try {
+                start = System.nanoTime();
+                sink.write(name, data);
+                stats.record(Stage.FILE_WRITE, start);
+                stats.recordBytes(data.length);
+            } catch (IOException e) {
+                report.addWriteError(name, e);
+            }
+        }
+
+        /**
+         * A label handed to the write-behind stage. The I/O thread updates the manifest once the label is stored,
+         * the thread running the batch waits for the outcome before it settles the row.
+         */
+        private class QueuedWrite implements WriteBehind.Callback {
+
+            private final String name;
+            private final String hash;
+            private final int size;
+            private final CountDownLatch done = new CountDownLatch(1);
+            private volatile IOException error;
+
+            QueuedWrite(String name, String hash, int size) {
+                this.name = name;
+                this.hash = hash;
+                this.size = size;
+            }
+
+            @Override
+            public void written(IOException error) {
+                if (error == null) {
+                    stored(name, hash, size);
+                }
+                this.error = error;
+                done.countDown();
+            }
+
+            boolean isDone() {
+                return done.getCount() == 0;
+            }
+
+            /**
+             * @return the failure of the write, or null once the label is stored
+             */
+            IOException await() throws InterruptedException {
+                done.await();
+                return error;
+            }
+        }
+
+        private void notify(Pending pending, String name, LabelResult.Status status, Throwable cause) {
+            if (listener != null) {
+                listener.completed(new LabelResult(pending.row, pending.text, name, status, cause));
+            }
+        }
+    }
+
+    /**
+     * Creates the workers, a fixed pool either way so the buffers and rasters every worker pools are reused across
+     * its rows instead of being created for each of them.
+     */
+    private ExecutorService newExecutor(BatchReport report) {
+        ThreadFactory factory = options.isVirtualThreads() ? virtualThreadFactory() : null;
+        report.setVirtualThreads(factory != null);
+        if (factory == null) {
+            factory = new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "qrgen-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+        }
+        return Executors.newFixedThreadPool(options.getThreads(), factory);
+    }
+
+    /**
+     * @return a factory of virtual threads named qrgen-worker-N, or null if the JVM does not have virtual threads
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, "qrgen-worker-", 1L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static class Pending {
+
+        private final int row;
+        private final String text;
+        private final Future<Outcome> result;
+        private Outcome outcome;
+        private Throwable failure;
+
+        Pending(int row, String text, Future<Outcome> result) {
+            this.row = row;
+            this.text = text;
+            this.result = result;
+        }
+    }
+
+    private static class Outcome {
+
+        private final String name;
+        private final String hash;
+        private final String status;
+        private final BufferedImage image;
+        private final Run.QueuedWrite write;
+        private final byte[] data;
+
+        Outcome(String name, String hash, String status) {
+            this(name, hash, status, null, null);
+        }
+
+        /**
+         * @param data the encoded label, for the thread running the batch to write to an ordered sink
+         */
+        Outcome(String name, String hash, String status, byte[] data) {
+            this.name = name;
+            this.hash = hash;
+            this.status = status;
+            this.image = null;
+            this.write = null;
+            this.data = data;
+        }
+
+        Outcome(String name, String hash, String status, BufferedImage image) {
+            this(name, hash, status, image, null);
+        }
+
+        /**
+         * @param image the rendered label, for the thread running the batch to impose onto a print sheet
+         * @param write the write of the label if it was queued
+         */
+        Outcome(String name, String hash, String status, BufferedImage image, Run.QueuedWrite write) {
+            this.name = name;
+            this.hash = hash;
+            this.status = status;
+            this.image = image;
+            this.write = write;
+            this.data = null;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package net.glxn.qrgen.javase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The outcome of a batch run. Failures are kept in row order so the report is the same whatever the worker count.
+ */
+public class BatchReport {
+
+    private int rows;
+    private int generated;
+    private int skipped;
+    private int otherShards;
+    private int resumed;
+    private List<String> pruned = Collections.emptyList();
+    private EncodeCache cache;
+    private RunStats stats;
+    private final List<Failure> failures = new ArrayList<>();
+    private final List<WriteError> writeErrors = new ArrayList<>();
+    private final List<VerifyFailure> verifyFailures = new ArrayList<>();
+    private int verified;
+    private boolean virtualThreads;
+
+    void addRow() {
+        rows++;
+    }
+
+    void addGenerated() {
+        generated++;
+    }
+
+    void addSkipped() {
+        skipped++;
+    }
+
+    void addResumed() {
+        resumed++;
+    }
+
+    void addOtherShard() {
+        otherShards++;
+    }
+
+    void setPruned(List<String> pruned) {
+        this.pruned = pruned;
+    }
+
+    void setCache(EncodeCache cache) {
+        this.cache = cache;
+    }
+
+    void setStats(RunStats stats) {
+        this.stats = stats;
+    }
+
+    void addFailure(int row, String text, Throwable cause) {
+        failures.add(new Failure(row, text, cause));
+    }
+
+    /**
+     * Records a print sheet that could not be stored, called by the I/O threads of a write-behind run.
+     */
+    void addWriteError(String name, IOException cause) {
+        synchronized (writeErrors) {
+            writeErrors.add(new WriteError(name, cause));
+        }
+    }
+
+    /**
+     * Records a problem found with a rendered label, called by the threads of a {@link LabelVerifier}.
+     */
+    void addVerifyFailure(int row, String name, String problem) {
+        synchronized (verifyFailures) {
+            verifyFailures.add(new VerifyFailure(row, name, problem));
+        }
+    }
+
+    void setVerified(int verified) {
+        this.verified = verified;
+    }
+
+    void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getGenerated() {
+        return generated;
+    }
+
+    /**
+     * @return the number of rows skipped by an incremental run because their output was up to date
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return the number of rows a resumed run skipped because an earlier attempt had finished them
+     */
+    public int getResumed() {
+        return resumed;
+    }
+
+    /**
+     * @return the number of rows left to the other shards of a sharded run
+     */
+    public int getOtherShards() {
+        return otherShards;
+    }
+
+    /**
+     * @return the outputs an incremental run deleted because their rows were removed
+     */
+    public List<String> getPruned() {
+        return Collections.unmodifiableList(pruned);
+    }
+
+    /**
+     * @return the cache used by the run with its hit and miss counts, null if caching was disabled
+     */
+    public EncodeCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the stage timings, throughput and bytes written of the run
+     */
+    public RunStats getStats() {
+        return stats;
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return the print sheets that could not be stored, in the order the writes failed; a label that cannot be
+     * stored fails its row instead
+     */
+    public List<WriteError> getWriteErrors() {
+        synchronized (writeErrors) {
+            return Collections.unmodifiableList(new ArrayList<>(writeErrors));
+        }
+    }
+
+    /**
+     * @return true if the rows ran on virtual threads, false if they ran on platform threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the number of labels the verification stage checked
+     */
+    public int getVerified() {
+        return verified;
+    }
+
+    /**
+     * @return the problems the verification stage found, in row order
+     */
+    public List<VerifyFailure> getVerifyFailures() {
+        List<VerifyFailure> sorted;
+        synchronized (verifyFailures) {
+            sorted = new ArrayList<>(verifyFailures);
+        }
+        Collections.sort(sorted, new Comparator<VerifyFailure>() {
+            @Override
+            public int compare(VerifyFailure a, VerifyFailure b) {
+                return a.row < b.row ? -1 : a.row == b.row ? 0 : 1;
+            }
+        });
+        return Collections.unmodifiableList(sorted);
+    }
+
+    public static class VerifyFailure {
+
+        private final int row;
+        private final String name;
+        private final String problem;
+
+        VerifyFailure(int row, String name, String problem) {
+            this.row = row;
+            this.name = name;
+            this.problem = problem;
+        }
+
+        /**
+         * @return the zero based index of the row in the input
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * @return the file name of the label
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return what is wrong with the label, e.g. does not scan, no code found
+         */
+        public String getProblem() {
+            return problem;
+        }
+    }
+
+    public static class WriteError {
+
+        private final String name;
+        private final IOException cause;
+
+        WriteError(String name, IOException cause) {
+            this.name = name;
+            this.cause = cause;
+        }
+
+        /**
+         * @return the file name of the label
+         */
+        public String getName() {
+            return name;
+        }
+
+        public IOException getCause() {
+            return cause;
+        }
+    }
+
+    public static class Failure {
+
+        private final int row;
+        private final String text;
+        private final Throwable cause;
+
+        Failure(int row, String text, Throwable cause) {
+            this.row = row;
+            this.text = text;
+            this.cause = cause;
+        }
+
+        /**
+         * @return the zero based index of the row in the input
+         */
+        public int getRow() {
+            return row;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+
+/**
+ * Packed 1-bit images of QR matrices.
+ * <p>
+ * A matrix is copied into a {@link BufferedImage#TYPE_BYTE_BINARY} image eight modules at a time straight from its
+ * bit words, instead of one <code>setRGB</code> call per pixel into a new image. Pixel index 0 is the off colour and
+ * 1 the on colour. Each thread keeps the last few images it drew, one per size and colour pair, and draws the next
+ * label of the same size into the same image, so a batch of equal labels allocates no raster after the first one.
+ * </p>
+ */
+public class BinaryRaster {
+
+    private static final int POOLED = 4;
+
+    private static final byte[] REVERSED = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            REVERSED[i] = (byte) (Integer.reverse(i) >>> 24);
+        }
+    }
+
+    private static final ThreadLocal<Entry[]> POOL = new ThreadLocal<Entry[]>() {
+        @Override
+        protected Entry[] initialValue() {
+            return new Entry[POOLED];
+        }
+    };
+
+    private BinaryRaster() {
+    }
+
+    /**
+     * Draws a matrix into an image of the calling thread's pool. The image is overwritten by the next call of the
+     * same thread for the same size and colours, so it must not be kept or handed to another thread.
+     *
+     * @param matrix   the QR matrix
+     * @param offColor the ARGB colour of unset modules
+     * @param onColor  the ARGB colour of set modules
+     * @return the pooled image holding the matrix
+     */
+    public static BufferedImage drawPooled(BitMatrix matrix, int offColor, int onColor) {
+        Entry[] pool = POOL.get();
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        Entry entry = null;
+        int slot = 0;
+        for (int i = 0; i < pool.length; i++) {
+            Entry candidate = pool[i];
+            if (candidate == null) {
+                slot = i;
+                break;
+            }
+            if (candidate.matches(width, height, offColor, onColor)) {
+                entry = candidate;
+                slot = i;
+                break;
+            }
+            slot = i;
+        }
+        if (entry == null) {
+            entry = new Entry(create(width, height, offColor, onColor));
+        }
+        // most recently used first, the last one is replaced when the pool is full
+        System.arraycopy(pool, 0, pool, 1, slot);
+        pool[0] = entry;
+        entry.row = draw(matrix, entry.image, entry.row);
+        return entry.image;
+    }
+
+    /**
+     * @return a new two colour image, pixel index 0 in the off colour and 1 in the on colour
+     */
+    public static BufferedImage create(int width, int height, int offColor, int onColor) {
+        int[] colors = {offColor, onColor};
+        boolean alpha = (offColor >>> 24) != 0xFF || (onColor >>> 24) != 0xFF;
+        IndexColorModel model = new IndexColorModel(1, 2, colors, 0, alpha, -1, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, model);
+    }
+
+    /**
+     * Copies the matrix into a packed image of the same size as returned by {@link #create}.
+     *
+     * @param matrix the QR matrix
+     * @param image  the image, every pixel is overwritten
+     * @param row    a row buffer to reuse, may be null
+     * @return the row buffer, to pass to the next call
+     */
+    static BitArray draw(BitMatrix matrix, BufferedImage image, BitArray row) {
+        Raster raster = image.getRaster();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int stride = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        int width = matrix.getWidth();
+        int bytes = (width + 7) / 8;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            row = matrix.getRow(y, row);
+            int[] words = row.getBitArray();
+            int offset = y * stride;
+            for (int i = 0; i < bytes; i++) {
+                data[offset + i] = REVERSED[(words[i >> 2] >>> ((i & 3) * 8)) & 0xFF];
+            }
+        }
+        return row;
+    }
+
+    /**
+     * @return true if the image is a whole, unshifted two colour packed image, whose data {@link PngEncoder} can
+     * take as it is
+     */
+    public static boolean isPacked(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY || image.getRaster().getParent() != null
+                || !(image.getColorModel() instanceof IndexColorModel)) {
+            return false;
+        }
+        Raster raster = image.getRaster();
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || !(raster.getSampleModel() instanceof MultiPixelPackedSampleModel)) {
+            return false;
+        }
+        MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) raster.getSampleModel();
+        return model.getPixelBitStride() == 1 && model.getDataBitOffset() == 0
+                && ((IndexColorModel) image.getColorModel()).getMapSize() == 2;
+    }
+
+    private static class Entry {
+
+        private final BufferedImage image;
+        private final int offColor;
+        private final int onColor;
+        private BitArray row;
+
+        Entry(BufferedImage image) {
+            this.image = image;
+            IndexColorModel model = (IndexColorModel) image.getColorModel();
+            this.offColor = model.getRGB(0);
+            this.onColor = model.getRGB(1);
+        }
+
+        boolean matches(int width, int height, int offColor, int onColor) {
+            return image.getWidth() == width && image.getHeight() == height
+                    && this.offColor == offColor && this.onColor == onColor;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.glxn.qrgen.javase;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the progress of a FILE run: a <code>code :</code> line per row followed by the file name, or with quiet
+ * output only the rows that failed.
+ */
+public class ConsoleListener implements LabelListener {
+
+    private final PrintStream out;
+    private final boolean quiet;
+
+    public ConsoleListener(PrintStream out, boolean quiet) {
+        this.out = out;
+        this.quiet = quiet;
+    }
+
+    @Override
+    public void completed(LabelResult result) {
+        if (!quiet) {
+            out.println("code :" + result.getText());
+        }
+        switch (result.getStatus()) {
+            case FAILED:
+                out.println("error machine :" + result.getText());
+                break;
+            case RESUMED:
+                if (!quiet) {
+                    out.println("resumed :" + result.getFileName());
+                }
+                break;
+            case UNCHANGED:
+                if (!quiet) {
+                    out.println("unchanged :" + result.getFileName());
+                }
+                break;
+            case GENERATED:
+                if (!quiet) {
+                    out.println("file name :" + result.getFileName());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
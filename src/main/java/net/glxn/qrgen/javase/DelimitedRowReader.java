@@ -0,0 +1,76 @@
+package net.glxn.qrgen.javase;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads CSV or TSV exports with the same columns as the xlsx lists and joins each record with a {@link RowBuilder}.
+ * Fields may be quoted with double quotes, as spreadsheet programs do for values holding the delimiter, a quote or
+ * a line break. Blank lines and the header row are skipped.
+ */
+class DelimitedRowReader extends ReaderRowSource {
+
+    private final char delimiter;
+    private final RowBuilder row;
+    private final StringBuilder field = new StringBuilder();
+
+    DelimitedRowReader(Reader reader, char delimiter, String prefix, String name, RunStats stats) {
+        super(reader, name, stats);
+        this.delimiter = delimiter;
+        this.row = new RowBuilder(prefix);
+    }
+
+    @Override
+    protected String readRow() throws IOException {
+        int c = read();
+        while (c != -1) {
+            row.start();
+            boolean blank = true;
+            while (c != -1 && c != '\n') {
+                field.setLength(0);
+                c = readField(c);
+                blank &= field.length() == 0 && c != delimiter;
+                row.cell(field);
+                if (c == delimiter) {
+                    c = read();
+                }
+            }
+            if (!blank) {
+                String text = row.finish();
+                if (text != null) {
+                    return text;
+                }
+            }
+            c = read();
+        }
+        return null;
+    }
+
+    /**
+     * Reads a field into {@link #field}, starting with the already read character <code>c</code>.
+     *
+     * @return the character that ended the field: the delimiter, a line feed or -1
+     */
+    private int readField(int c) throws IOException {
+        if (c == '"') {
+            c = read();
+            while (c != -1) {
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        break;
+                    }
+                }
+                field.append((char) c);
+                c = read();
+            }
+        }
+        while (c != -1 && c != delimiter && c != '\n') {
+            if (c != '\r') {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        return c;
+    }
+}
@@ -0,0 +1,47 @@
+package net.glxn.qrgen.javase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes every output to its own file. The destination is a prefix the file name is appended to, usually a
+ * directory ending with a separator, as given on the command line.
+ */
+public class DirectorySink implements OutputSink {
+
+    private final String destination;
+
+    public DirectorySink(String destination) {
+        this.destination = destination;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * @param name the file name of an output
+     * @return the file the output is written to
+     */
+    public File file(String name) {
+        return new File(destination + name);
+    }
+
+    @Override
+    public void write(String name, byte[] data) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(name).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,188 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-run cache of encoded QR codes shared by all workers of a batch.
+ * <p>
+ * Matrices are keyed by payload, size and encode hints, so rows repeating a payload run
+ * {@link com.google.zxing.qrcode.QRCodeWriter#encode} only once. Rendered images are additionally keyed by their
+ * label and format, so fully identical labels are encoded to bytes only once. Both maps evict the least recently
+ * used entry, the matrices once there are more than <code>maxMatrices</code> of them and the images once their
+ * bytes add up to more than <code>maxImageBytes</code>.
+ * </p>
+ */
+public class EncodeCache {
+
+    private final Lru<MatrixKey, BitMatrix> matrices;
+    private final Lru<ImageKey, byte[]> images;
+
+    /**
+     * @param maxMatrices   the number of matrices to keep
+     * @param maxImageBytes the total size of rendered images to keep
+     */
+    public EncodeCache(int maxMatrices, long maxImageBytes) {
+        this.matrices = new Lru<>(maxMatrices);
+        this.images = new Lru<>(maxImageBytes);
+    }
+
+    BitMatrix getMatrix(MatrixKey key) {
+        return matrices.get(key);
+    }
+
+    void putMatrix(MatrixKey key, BitMatrix matrix) {
+        matrices.put(key, matrix, 1);
+    }
+
+    byte[] getImage(ImageKey key) {
+        return images.get(key);
+    }
+
+    void putImage(ImageKey key, byte[] image) {
+        images.put(key, image, image.length);
+    }
+
+    public long getMatrixHits() {
+        return matrices.hits.get();
+    }
+
+    public long getMatrixMisses() {
+        return matrices.misses.get();
+    }
+
+    public long getImageHits() {
+        return images.hits.get();
+    }
+
+    public long getImageMisses() {
+        return images.misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "matrix hits :" + getMatrixHits() + " misses :" + getMatrixMisses()
+                + " image hits :" + getImageHits() + " misses :" + getImageMisses();
+    }
+
+    static class MatrixKey {
+
+        private final String text;
+        private final int width;
+        private final int height;
+        private final Map<EncodeHintType, Object> hints;
+        private final String encoder;
+
+        /**
+         * @param encoder identifies encoders that produce a different matrix than QRCodeWriter for the same input
+         */
+        MatrixKey(String text, int width, int height, Map<EncodeHintType, Object> hints, String encoder) {
+            this.text = text;
+            this.width = width;
+            this.height = height;
+            this.hints = new HashMap<>(hints);
+            this.encoder = encoder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MatrixKey)) {
+                return false;
+            }
+            MatrixKey other = (MatrixKey) o;
+            return width == other.width && height == other.height && text.equals(other.text)
+                    && hints.equals(other.hints) && encoder.equals(other.encoder);
+        }
+
+        @Override
+        public int hashCode() {
+            return (((text.hashCode() * 31 + width) * 31 + height) * 31 + hints.hashCode()) * 31 + encoder.hashCode();
+        }
+    }
+
+    static class ImageKey {
+
+        private final MatrixKey matrix;
+        private final Object[] render;
+
+        /**
+         * @param matrix the key of the encoded matrix
+         * @param render everything else that decides the rendered bytes, e.g. label text, format and colors
+         */
+        ImageKey(MatrixKey matrix, Object... render) {
+            this.matrix = matrix;
+            this.render = render;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ImageKey)) {
+                return false;
+            }
+            ImageKey other = (ImageKey) o;
+            return matrix.equals(other.matrix) && Arrays.equals(render, other.render);
+        }
+
+        @Override
+        public int hashCode() {
+            return matrix.hashCode() * 31 + Arrays.hashCode(render);
+        }
+    }
+
+    private static class Lru<K, V> {
+
+        private final long capacity;
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private long weight;
+
+        Lru(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized V get(K key) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        }
+
+        synchronized void put(K key, V value, long entryWeight) {
+            if (entryWeight > capacity) {
+                return;
+            }
+            Entry<V> old = map.put(key, new Entry<>(value, entryWeight));
+            if (old != null) {
+                weight -= old.weight;
+            }
+            weight += entryWeight;
+            Iterator<Entry<V>> eldest = map.values().iterator();
+            while (weight > capacity && eldest.hasNext()) {
+                weight -= eldest.next().weight;
+                eldest.remove();
+            }
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,717 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.Writer;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.decoder.Mode;
+import com.google.zxing.qrcode.decoder.Version;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A QR {@link Writer} for numeric and alphanumeric payloads such as EQ/BEB1/1000/0/EPL-AGT-EVLIM00001.
+ * <p>
+ * The function patterns, version information and the order in which data modules are placed are computed once per
+ * version and reused, as are the Reed-Solomon generator polynomials, so encoding a code is reduced to packing the
+ * data codewords, one table driven error correction pass and filling the template under each mask. Mode, version
+ * and mask are chosen exactly as {@link QRCodeWriter} chooses them, and the result is the same matrix. Payloads
+ * outside this class, e.g. lower case or non ASCII text, are handed to {@link QRCodeWriter}.
+ * </p>
+ * <p>
+ * The version may be pinned, like the {@link EncodeHintType#QR_VERSION} hint, which takes precedence. With the mask
+ * heuristic on, masks are scored without the finder-like pattern rule, the most expensive of the four penalty rules;
+ * the code is still valid and decodable but may use another mask than {@link QRCodeWriter} would.
+ * </p>
+ */
+public class FastQRCodeWriter implements Writer {
+
+    private static final int QUIET_ZONE_SIZE = 4;
+    private static final int NUM_MASK_PATTERNS = 8;
+    private static final int TYPE_INFO_POLY = 0x537;
+    private static final int TYPE_INFO_MASK_PATTERN = 0x5412;
+    private static final int VERSION_INFO_POLY = 0x1f25;
+    private static final int[][] TYPE_INFO_COORDINATES = {
+            {8, 0}, {8, 1}, {8, 2}, {8, 3}, {8, 4}, {8, 5}, {8, 7}, {8, 8},
+            {7, 8}, {5, 8}, {4, 8}, {3, 8}, {2, 8}, {1, 8}, {0, 8},
+    };
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+    private static final int[] EXP = new int[512];
+    private static final int[] LOG = new int[256];
+    private static final int[][] GENERATORS = new int[69][];
+    private static final Template[] TEMPLATES = new Template[41];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x >= 256) {
+                x ^= 0x11D;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+        int[] generator = {1};
+        GENERATORS[0] = generator;
+        for (int degree = 1; degree < GENERATORS.length; degree++) {
+            int[] next = new int[degree + 1];
+            for (int i = 0; i < generator.length; i++) {
+                next[i] ^= generator[i];
+                next[i + 1] ^= multiply(generator[i], EXP[degree - 1]);
+            }
+            generator = next;
+            GENERATORS[degree] = generator;
+        }
+    }
+
+    private final QRCodeWriter fallback = new QRCodeWriter();
+    private final int version;
+    private final boolean maskHeuristic;
+
+    public FastQRCodeWriter() {
+        this(0, false);
+    }
+
+    /**
+     * @param version       the version to always encode with, or 0 to pick the smallest that fits
+     * @param maskHeuristic score masks without the finder-like pattern rule, see the class documentation
+     */
+    public FastQRCodeWriter(int version, boolean maskHeuristic) {
+        if (version < 0 || version > 40) {
+            throw new IllegalArgumentException("version must be between 1 and 40, or 0 for any, but was " + version);
+        }
+        this.version = version;
+        this.maskHeuristic = maskHeuristic;
+    }
+
+    /**
+     * @param contents the text to encode
+     * @return whether the contents are encoded by this writer rather than handed to {@link QRCodeWriter}
+     */
+    public static boolean isFastPath(String contents) {
+        return mode(contents) != null;
+    }
+
+    @Override
+    public BitMatrix encode(String contents, BarcodeFormat format, int width, int height) throws WriterException {
+        return encode(contents, format, width, height, null);
+    }
+
+    @Override
+    public BitMatrix encode(String contents, BarcodeFormat format, int width, int height,
+                            Map<EncodeHintType, ?> hints) throws WriterException {
+        if (contents.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        if (format != BarcodeFormat.QR_CODE) {
+            throw new IllegalArgumentException("Can only encode QR_CODE, but got " + format);
+        }
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Requested dimensions are too small: " + width + 'x' + height);
+        }
+        ErrorCorrectionLevel ecLevel = ErrorCorrectionLevel.L;
+        int quietZone = QUIET_ZONE_SIZE;
+        int pinned = version;
+        if (hints != null) {
+            if (hints.containsKey(EncodeHintType.ERROR_CORRECTION)) {
+                ecLevel = ErrorCorrectionLevel.valueOf(hints.get(EncodeHintType.ERROR_CORRECTION).toString());
+            }
+            if (hints.containsKey(EncodeHintType.MARGIN)) {
+                quietZone = Integer.parseInt(hints.get(EncodeHintType.MARGIN).toString());
+            }
+            if (hints.containsKey(EncodeHintType.QR_VERSION)) {
+                pinned = Integer.parseInt(hints.get(EncodeHintType.QR_VERSION).toString());
+            }
+        }
+        Mode mode = mode(contents);
+        if (mode == null) {
+            Map<EncodeHintType, Object> fallbackHints = new HashMap<>();
+            if (hints != null) {
+                fallbackHints.putAll(hints);
+            }
+            if (pinned > 0) {
+                fallbackHints.put(EncodeHintType.QR_VERSION, pinned);
+            }
+            return fallback.encode(contents, format, width, height, fallbackHints);
+        }
+        return render(encode(contents, mode, ecLevel, pinned), width, height, quietZone);
+    }
+
+    /**
+     * @return NUMERIC or ALPHANUMERIC as {@link com.google.zxing.qrcode.encoder.Encoder} would choose them, or null
+     * when the contents need another mode
+     */
+    private static Mode mode(String contents) {
+        boolean alphanumeric = false;
+        for (int i = 0; i < contents.length(); i++) {
+            char c = contents.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            if (ALPHANUMERIC.indexOf(c) < 0) {
+                return null;
+            }
+            alphanumeric = true;
+        }
+        return alphanumeric ? Mode.ALPHANUMERIC : Mode.NUMERIC;
+    }
+
+    private byte[] encode(String contents, Mode mode, ErrorCorrectionLevel ecLevel, int pinned)
+            throws WriterException {
+        int length = contents.length();
+        int dataBits = mode == Mode.NUMERIC
+                ? 10 * (length / 3) + (length % 3 == 2 ? 7 : length % 3 == 1 ? 4 : 0)
+                : 11 * (length / 2) + 6 * (length % 2);
+        Version chosen;
+        if (pinned > 0) {
+            chosen = Version.getVersionForNumber(pinned);
+            if (!willFit(4 + mode.getCharacterCountBits(chosen) + dataBits, chosen, ecLevel)) {
+                throw new WriterException("Data too big for requested version");
+            }
+        } else {
+            Version provisional = chooseVersion(
+                    4 + mode.getCharacterCountBits(Version.getVersionForNumber(1)) + dataBits, ecLevel);
+            chosen = chooseVersion(4 + mode.getCharacterCountBits(provisional) + dataBits, ecLevel);
+        }
+        int countBits = mode.getCharacterCountBits(chosen);
+        if (length >= 1 << countBits) {
+            throw new WriterException(length + " is bigger than " + ((1 << countBits) - 1));
+        }
+        Version.ECBlocks ecBlocks = chosen.getECBlocksForLevel(ecLevel);
+        int numTotalBytes = chosen.getTotalCodewords();
+        int numDataBytes = numTotalBytes - ecBlocks.getTotalECCodewords();
+
+        Bits bits = new Bits(numDataBytes);
+        bits.append(mode.getBits(), 4);
+        bits.append(length, countBits);
+        if (mode == Mode.NUMERIC) {
+            int i = 0;
+            for (; i + 2 < length; i += 3) {
+                bits.append(digit(contents, i) * 100 + digit(contents, i + 1) * 10 + digit(contents, i + 2), 10);
+            }
+            if (length - i == 2) {
+                bits.append(digit(contents, i) * 10 + digit(contents, i + 1), 7);
+            } else if (length - i == 1) {
+                bits.append(digit(contents, i), 4);
+            }
+        } else {
+            int i = 0;
+            for (; i + 1 < length; i += 2) {
+                bits.append(ALPHANUMERIC.indexOf(contents.charAt(i)) * 45
+                        + ALPHANUMERIC.indexOf(contents.charAt(i + 1)), 11);
+            }
+            if (i < length) {
+                bits.append(ALPHANUMERIC.indexOf(contents.charAt(i)), 6);
+            }
+        }
+        bits.terminate(numDataBytes);
+
+        byte[] codewords = interleave(bits.bytes, numTotalBytes, numDataBytes, ecBlocks.getNumBlocks());
+        return place(template(chosen.getVersionNumber()), codewords, ecLevel);
+    }
+
+    private static int digit(String contents, int index) {
+        return contents.charAt(index) - '0';
+    }
+
+    private static Version chooseVersion(int numInputBits, ErrorCorrectionLevel ecLevel) throws WriterException {
+        for (int versionNum = 1; versionNum <= 40; versionNum++) {
+            Version version = Version.getVersionForNumber(versionNum);
+            if (willFit(numInputBits, version, ecLevel)) {
+                return version;
+            }
+        }
+        throw new WriterException("Data too big");
+    }
+
+    private static boolean willFit(int numInputBits, Version version, ErrorCorrectionLevel ecLevel) {
+        int numDataBytes = version.getTotalCodewords() - version.getECBlocksForLevel(ecLevel).getTotalECCodewords();
+        return numDataBytes >= (numInputBits + 7) / 8;
+    }
+
+    /**
+     * Splits the data codewords into blocks, appends the error correction codewords of each block and interleaves
+     * the blocks, see 8.6 of JISX0510:2004.
+     */
+    private static byte[] interleave(byte[] data, int numTotalBytes, int numDataBytes, int numBlocks) {
+        int numBlocksInGroup2 = numTotalBytes % numBlocks;
+        int numBlocksInGroup1 = numBlocks - numBlocksInGroup2;
+        int numTotalBytesInGroup1 = numTotalBytes / numBlocks;
+        int numDataBytesInGroup1 = numDataBytes / numBlocks;
+        int numEcBytes = numTotalBytesInGroup1 - numDataBytesInGroup1;
+        byte[] result = new byte[numTotalBytes];
+        int[] remainder = new int[numEcBytes];
+        int dataOffset = 0;
+        for (int block = 0; block < numBlocks; block++) {
+            int numDataBytesInBlock = block < numBlocksInGroup1 ? numDataBytesInGroup1 : numDataBytesInGroup1 + 1;
+            int[] generator = GENERATORS[numEcBytes];
+            Arrays.fill(remainder, 0);
+            for (int i = 0; i < numDataBytesInBlock; i++) {
+                int value = data[dataOffset + i] & 0xFF;
+                int position = i < numDataBytesInGroup1 ? i * numBlocks + block
+                        : numDataBytesInGroup1 * numBlocks + block - numBlocksInGroup1;
+                result[position] = (byte) value;
+                int factor = value ^ remainder[0];
+                System.arraycopy(remainder, 1, remainder, 0, numEcBytes - 1);
+                remainder[numEcBytes - 1] = 0;
+                if (factor != 0) {
+                    int logFactor = LOG[factor];
+                    for (int j = 0; j < numEcBytes; j++) {
+                        int coefficient = generator[j + 1];
+                        if (coefficient != 0) {
+                            remainder[j] ^= EXP[LOG[coefficient] + logFactor];
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < numEcBytes; i++) {
+                result[numDataBytes + i * numBlocks + block] = (byte) remainder[i];
+            }
+            dataOffset += numDataBytesInBlock;
+        }
+        return result;
+    }
+
+    private static int multiply(int a, int b) {
+        return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+
+    /**
+     * Fills the template with the codewords under every mask and keeps the one with the lowest penalty, the first
+     * on a tie, as {@link com.google.zxing.qrcode.encoder.Encoder} does.
+     */
+    private byte[] place(Template template, byte[] codewords, ErrorCorrectionLevel ecLevel) {
+        int[] positions = template.positions;
+        byte[] data = new byte[positions.length];
+        int numBits = codewords.length * 8;
+        for (int i = 0; i < numBits; i++) {
+            data[i] = (byte) ((codewords[i >> 3] >> (7 - (i & 7))) & 1);
+        }
+        byte[] best = null;
+        byte[] candidate = new byte[template.modules.length];
+        int minPenalty = Integer.MAX_VALUE;
+        for (int mask = 0; mask < NUM_MASK_PATTERNS; mask++) {
+            System.arraycopy(template.modules, 0, candidate, 0, candidate.length);
+            byte[] maskBits = template.mask(mask);
+            for (int i = 0; i < positions.length; i++) {
+                candidate[positions[i]] = (byte) (data[i] ^ maskBits[i]);
+            }
+            template.embedTypeInfo(candidate, ecLevel, mask);
+            int penalty = penalty(candidate, template.dimension);
+            if (penalty < minPenalty) {
+                minPenalty = penalty;
+                byte[] swap = best == null ? new byte[candidate.length] : best;
+                best = candidate;
+                candidate = swap;
+            }
+        }
+        return best;
+    }
+
+    private int penalty(byte[] matrix, int dimension) {
+        int penalty = runPenalty(matrix, dimension) + blockPenalty(matrix, dimension) + balancePenalty(matrix);
+        if (!maskHeuristic) {
+            penalty += finderPenalty(matrix, dimension);
+        }
+        return penalty;
+    }
+
+    /**
+     * Rule 1: 3 + (n - 5) for every horizontal or vertical run of n >= 5 modules of the same color.
+     */
+    private static int runPenalty(byte[] matrix, int dimension) {
+        int penalty = 0;
+        for (int i = 0; i < dimension; i++) {
+            int rowRun = 0;
+            int rowPrevious = -1;
+            int columnRun = 0;
+            int columnPrevious = -1;
+            for (int j = 0; j < dimension; j++) {
+                int rowBit = matrix[i * dimension + j];
+                if (rowBit == rowPrevious) {
+                    rowRun++;
+                } else {
+                    if (rowRun >= 5) {
+                        penalty += 3 + rowRun - 5;
+                    }
+                    rowRun = 1;
+                    rowPrevious = rowBit;
+                }
+                int columnBit = matrix[j * dimension + i];
+                if (columnBit == columnPrevious) {
+                    columnRun++;
+                } else {
+                    if (columnRun >= 5) {
+                        penalty += 3 + columnRun - 5;
+                    }
+                    columnRun = 1;
+                    columnPrevious = columnBit;
+                }
+            }
+            if (rowRun >= 5) {
+                penalty += 3 + rowRun - 5;
+            }
+            if (columnRun >= 5) {
+                penalty += 3 + columnRun - 5;
+            }
+        }
+        return penalty;
+    }
+
+    /**
+     * Rule 2: 3 for every 2x2 block of the same color.
+     */
+    private static int blockPenalty(byte[] matrix, int dimension) {
+        int blocks = 0;
+        for (int y = 0; y < dimension - 1; y++) {
+            int row = y * dimension;
+            for (int x = 0; x < dimension - 1; x++) {
+                byte value = matrix[row + x];
+                if (value == matrix[row + x + 1] && value == matrix[row + dimension + x]
+                        && value == matrix[row + dimension + x + 1]) {
+                    blocks++;
+                }
+            }
+        }
+        return 3 * blocks;
+    }
+
+    /**
+     * Rule 3: 40 for every 1:1:3:1:1 dark-light-dark-dark-dark-light-dark pattern with four light modules on
+     * either side.
+     */
+    private static int finderPenalty(byte[] matrix, int dimension) {
+        int patterns = 0;
+        for (int y = 0; y < dimension; y++) {
+            int row = y * dimension;
+            for (int x = 0; x < dimension; x++) {
+                if (x + 6 < dimension && isFinderLike(matrix, row + x, 1)
+                        && (isLight(matrix, row, x - 4, x, 1, dimension)
+                        || isLight(matrix, row, x + 7, x + 11, 1, dimension))) {
+                    patterns++;
+                }
+                if (y + 6 < dimension && isFinderLike(matrix, row + x, dimension)
+                        && (isLight(matrix, x, y - 4, y, dimension, dimension)
+                        || isLight(matrix, x, y + 7, y + 11, dimension, dimension))) {
+                    patterns++;
+                }
+            }
+        }
+        return 40 * patterns;
+    }
+
+    private static boolean isFinderLike(byte[] matrix, int start, int step) {
+        return matrix[start] == 1 && matrix[start + step] == 0 && matrix[start + 2 * step] == 1
+                && matrix[start + 3 * step] == 1 && matrix[start + 4 * step] == 1
+                && matrix[start + 5 * step] == 0 && matrix[start + 6 * step] == 1;
+    }
+
+    private static boolean isLight(byte[] matrix, int base, int from, int to, int step, int dimension) {
+        from = Math.max(from, 0);
+        to = Math.min(to, dimension);
+        for (int i = from; i < to; i++) {
+            if (matrix[base + i * step] == 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rule 4: 10 for every full 5% the share of dark modules deviates from one half.
+     */
+    private static int balancePenalty(byte[] matrix) {
+        int dark = 0;
+        for (byte module : matrix) {
+            dark += module;
+        }
+        return Math.abs(dark * 2 - matrix.length) * 10 / matrix.length * 10;
+    }
+
+    /**
+     * Scales the modules up as {@link QRCodeWriter} does: the largest whole multiple that fits the requested size
+     * with the quiet zone, centered.
+     */
+    private static BitMatrix render(byte[] modules, int width, int height, int quietZone) {
+        int dimension = (int) Math.sqrt(modules.length);
+        int qrSize = dimension + quietZone * 2;
+        int outputWidth = Math.max(width, qrSize);
+        int outputHeight = Math.max(height, qrSize);
+        int multiple = Math.min(outputWidth / qrSize, outputHeight / qrSize);
+        int leftPadding = (outputWidth - dimension * multiple) / 2;
+        int topPadding = (outputHeight - dimension * multiple) / 2;
+        BitMatrix output = new BitMatrix(outputWidth, outputHeight);
+        BitArray row = new BitArray(outputWidth);
+        for (int y = 0; y < dimension; y++) {
+            row.clear();
+            int x = 0;
+            while (x < dimension) {
+                if (modules[y * dimension + x] != 1) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < dimension && modules[y * dimension + x] == 1) {
+                    x++;
+                }
+                row.setRange(leftPadding + start * multiple, leftPadding + x * multiple);
+            }
+            for (int i = 0; i < multiple; i++) {
+                output.setRow(topPadding + y * multiple + i, row);
+            }
+        }
+        return output;
+    }
+
+    private static Template template(int version) {
+        Template template = TEMPLATES[version];
+        if (template == null) {
+            // racing threads may each build one, they are equal and immutable once built
+            template = new Template(Version.getVersionForNumber(version));
+            TEMPLATES[version] = template;
+        }
+        return template;
+    }
+
+    private static int bchCode(int value, int poly) {
+        int msbSetInPoly = 32 - Integer.numberOfLeadingZeros(poly);
+        value <<= msbSetInPoly - 1;
+        while (32 - Integer.numberOfLeadingZeros(value) >= msbSetInPoly) {
+            value ^= poly << (32 - Integer.numberOfLeadingZeros(value) - msbSetInPoly);
+        }
+        return value;
+    }
+
+    private static boolean maskBit(int mask, int x, int y) {
+        int intermediate;
+        switch (mask) {
+            case 0:
+                intermediate = (y + x) & 1;
+                break;
+            case 1:
+                intermediate = y & 1;
+                break;
+            case 2:
+                intermediate = x % 3;
+                break;
+            case 3:
+                intermediate = (y + x) % 3;
+                break;
+            case 4:
+                intermediate = ((y / 2) + (x / 3)) & 1;
+                break;
+            case 5:
+                intermediate = ((y * x) & 1) + ((y * x) % 3);
+                break;
+            case 6:
+                intermediate = (((y * x) & 1) + ((y * x) % 3)) & 1;
+                break;
+            default:
+                intermediate = (((y * x) % 3) + ((y + x) & 1)) & 1;
+                break;
+        }
+        return intermediate == 0;
+    }
+
+    /**
+     * The modules of a version that do not depend on the data: finder, separator, alignment and timing patterns,
+     * the dark module and version information, plus the positions of the data modules in placement order.
+     */
+    private static class Template {
+
+        private final int dimension;
+        private final byte[] modules;
+        private final int[] positions;
+        private final byte[][] masks = new byte[NUM_MASK_PATTERNS][];
+
+        Template(Version version) {
+            dimension = version.getDimensionForVersion();
+            modules = new byte[dimension * dimension];
+            Arrays.fill(modules, (byte) -1);
+            finderPattern(0, 0);
+            finderPattern(dimension - 7, 0);
+            finderPattern(0, dimension - 7);
+            for (int i = 0; i < 8; i++) {
+                set(i, 7, 0);
+                set(dimension - 8 + i, 7, 0);
+                set(i, dimension - 8, 0);
+            }
+            for (int i = 0; i < 7; i++) {
+                set(7, i, 0);
+                set(dimension - 8, i, 0);
+                set(7, dimension - 7 + i, 0);
+            }
+            set(8, dimension - 8, 1);
+            if (version.getVersionNumber() >= 2) {
+                int[] centers = version.getAlignmentPatternCenters();
+                for (int y : centers) {
+                    for (int x : centers) {
+                        if (isEmpty(x, y)) {
+                            alignmentPattern(x - 2, y - 2);
+                        }
+                    }
+                }
+            }
+            for (int i = 8; i < dimension - 8; i++) {
+                int bit = (i + 1) % 2;
+                if (isEmpty(i, 6)) {
+                    set(i, 6, bit);
+                }
+                if (isEmpty(6, i)) {
+                    set(6, i, bit);
+                }
+            }
+            for (int i = 0; i < TYPE_INFO_COORDINATES.length; i++) {
+                set(TYPE_INFO_COORDINATES[i][0], TYPE_INFO_COORDINATES[i][1], 0);
+                if (i < 8) {
+                    set(dimension - i - 1, 8, 0);
+                } else {
+                    set(8, dimension - 7 + (i - 8), 0);
+                }
+            }
+            if (version.getVersionNumber() >= 7) {
+                int versionInfo = (version.getVersionNumber() << 12)
+                        | bchCode(version.getVersionNumber(), VERSION_INFO_POLY);
+                for (int i = 0; i < 6; i++) {
+                    for (int j = 0; j < 3; j++) {
+                        int bit = (versionInfo >> (i * 3 + j)) & 1;
+                        set(i, dimension - 11 + j, bit);
+                        set(dimension - 11 + j, i, bit);
+                    }
+                }
+            }
+            positions = dataPositions();
+        }
+
+        /**
+         * Walks the matrix in the two module wide zigzag of 8.7.3 of JISX0510:2004, from the bottom right corner.
+         */
+        private int[] dataPositions() {
+            int[] found = new int[modules.length];
+            int count = 0;
+            int direction = -1;
+            int x = dimension - 1;
+            int y = dimension - 1;
+            while (x > 0) {
+                if (x == 6) {
+                    x -= 1;
+                }
+                while (y >= 0 && y < dimension) {
+                    for (int i = 0; i < 2; i++) {
+                        if (isEmpty(x - i, y)) {
+                            found[count++] = y * dimension + x - i;
+                        }
+                    }
+                    y += direction;
+                }
+                direction = -direction;
+                y += direction;
+                x -= 2;
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        synchronized byte[] mask(int mask) {
+            byte[] bits = masks[mask];
+            if (bits == null) {
+                bits = new byte[positions.length];
+                for (int i = 0; i < positions.length; i++) {
+                    if (maskBit(mask, positions[i] % dimension, positions[i] / dimension)) {
+                        bits[i] = 1;
+                    }
+                }
+                masks[mask] = bits;
+            }
+            return bits;
+        }
+
+        void embedTypeInfo(byte[] matrix, ErrorCorrectionLevel ecLevel, int mask) {
+            int typeInfo = (ecLevel.getBits() << 3) | mask;
+            int bits = ((typeInfo << 10) | bchCode(typeInfo, TYPE_INFO_POLY)) ^ TYPE_INFO_MASK_PATTERN;
+            for (int i = 0; i < TYPE_INFO_COORDINATES.length; i++) {
+                byte bit = (byte) ((bits >> i) & 1);
+                matrix[TYPE_INFO_COORDINATES[i][1] * dimension + TYPE_INFO_COORDINATES[i][0]] = bit;
+                if (i < 8) {
+                    matrix[8 * dimension + dimension - i - 1] = bit;
+                } else {
+                    matrix[(dimension - 7 + (i - 8)) * dimension + 8] = bit;
+                }
+            }
+        }
+
+        private void finderPattern(int left, int top) {
+            for (int y = 0; y < 7; y++) {
+                for (int x = 0; x < 7; x++) {
+                    boolean ring = x == 0 || x == 6 || y == 0 || y == 6;
+                    boolean center = x >= 2 && x <= 4 && y >= 2 && y <= 4;
+                    set(left + x, top + y, ring || center ? 1 : 0);
+                }
+            }
+        }
+
+        private void alignmentPattern(int left, int top) {
+            for (int y = 0; y < 5; y++) {
+                for (int x = 0; x < 5; x++) {
+                    boolean ring = x == 0 || x == 4 || y == 0 || y == 4;
+                    set(left + x, top + y, ring || (x == 2 && y == 2) ? 1 : 0);
+                }
+            }
+        }
+
+        private boolean isEmpty(int x, int y) {
+            return modules[y * dimension + x] == -1;
+        }
+
+        private void set(int x, int y, int bit) {
+            modules[y * dimension + x] = (byte) bit;
+        }
+    }
+
+    /**
+     * The data codewords of one code, filled most significant bit first.
+     */
+    private static class Bits {
+
+        private final byte[] bytes;
+        private int size;
+
+        Bits(int numDataBytes) {
+            this.bytes = new byte[numDataBytes];
+        }
+
+        void append(int value, int numBits) throws WriterException {
+            if (size + numBits > bytes.length * 8) {
+                throw new WriterException("data bits cannot fit in the QR Code" + (size + numBits) + " > "
+                        + bytes.length * 8);
+            }
+            for (int i = numBits - 1; i >= 0; i--) {
+                if (((value >> i) & 1) != 0) {
+                    bytes[size >> 3] |= 1 << (7 - (size & 7));
+                }
+                size++;
+            }
+        }
+
+        /**
+         * Appends the terminator, pads to a byte boundary and fills the remaining codewords with 0xEC 0x11 ...
+         */
+        void terminate(int numDataBytes) throws WriterException {
+            int capacity = numDataBytes * 8;
+            size = Math.min(size + 4, capacity);
+            size = (size + 7) & ~7;
+            for (int i = 0; size < capacity; i++) {
+                append((i & 1) == 0 ? 0xEC : 0x11, 8);
+            }
+        }
+    }
+}
@@ -0,0 +1,650 @@
+package net.glxn.qrgen.javase;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Options for the FILE batch mode, parsed from the trailing <code>--name=value</code> command line arguments.
+ */
+public class GeneratorOptions {
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads;
+    private boolean incremental;
+    private boolean resume;
+    private boolean journal = true;
+    private int cacheSize = 1024;
+    private int writeQueue = 256;
+    private int ioThreads = 2;
+    private double verifyRate;
+    private int verifyThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int verifyQuietZone = 4;
+    private boolean zip;
+    private boolean quiet;
+    private String statsFile;
+    private String inputFormat;
+    private String type;
+    private int sheet;
+    private Charset charset = Charset.forName("UTF-8");
+    private Shard shard;
+    private String listName;
+    private long debounceMillis = 2000;
+    private String pattern = "*.xlsx";
+    private String destinationRoot;
+    private SheetLayout printLayout;
+    private final RenderOptions renderOptions = new RenderOptions();
+
+    /**
+     * Parses the options found in <code>args</code> starting at index <code>from</code>.
+     *
+     * @param args the command line arguments
+     * @param from the index of the first option
+     * @return the parsed options
+     * @throws IllegalArgumentException if an option is unknown or has an invalid value
+     */
+    public static GeneratorOptions parse(String[] args, int from) {
+        GeneratorOptions options = new GeneratorOptions();
+        int pngLevel = 6;
+        int pngStrategy = Deflater.DEFAULT_STRATEGY;
+        String shard = null;
+        boolean shardByRow = false;
+        String paper = null;
+        String grid = "3x4";
+        int dpi = 300;
+        double margin = 10;
+        double bleed = 0;
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? null : arg.substring(eq + 1);
+            switch (name) {
+                case "--threads":
+                    options.withThreads(parseInt(name, value));
+                    break;
+                case "--virtual-threads":
+                    options.withVirtualThreads(true);
+                    break;
+                case "--incremental":
+                    options.withIncremental(true);
+                    break;
+                case "--resume":
+                    options.withResume(true);
+                    break;
+                case "--cache-size":
+                    options.withCacheSize(parseInt(name, value));
+                    break;
+                case "--write-queue":
+                    options.withWriteQueue(parseInt(name, value));
+                    break;
+                case "--io-threads":
+                    options.withIoThreads(parseInt(name, value));
+                    break;
+                case "--verify":
+                    options.withVerifyRate(value == null ? 1 : parseRate(name, value));
+                    break;
+                case "--verify-threads":
+                    options.withVerifyThreads(parseInt(name, value));
+                    break;
+                case "--verify-quiet-zone":
+                    options.withVerifyQuietZone(parseInt(name, value));
+                    break;
+                case "--zip":
+                    options.withZip(true);
+                    break;
+                case "--quiet":
+                    options.withQuiet(true);
+                    break;
+                case "--stats":
+                    options.withStatsFile(requireValue(name, value));
+                    break;
+                case "--format":
+                    options.withInputFormat(requireValue(name, value));
+                    break;
+                case "--type":
+                    options.withType(requireValue(name, value));
+                    break;
+                case "--sheet":
+                    options.withSheet("all".equals(value) ? 0 : parseInt(name, value));
+                    break;
+                case "--charset":
+                    options.withCharset(Charset.forName(requireValue(name, value)));
+                    break;
+                case "--svg":
+                    options.getRenderOptions().withFormat(RenderOptions.Format.SVG);
+                    break;
+                case "--encoder":
+                    switch (String.valueOf(value)) {
+                        case "zxing":
+                            options.getRenderOptions().withFastEncoder(false, false);
+                            break;
+                        case "fast":
+                            options.getRenderOptions().withFastEncoder(true, false);
+                            break;
+                        case "fast-heuristic":
+                            options.getRenderOptions().withFastEncoder(true, true);
+                            break;
+                        default:
+                            throw new IllegalArgumentException(
+                                    "Option --encoder expects zxing, fast or fast-heuristic but was " + value);
+                    }
+                    break;
+                case "--qr-version":
+                    options.getRenderOptions().withVersion(parseInt(name, value));
+                    break;
+                case "--shard":
+                    shard = requireValue(name, value);
+                    break;
+                case "--shard-by":
+                    switch (String.valueOf(value)) {
+                        case "id":
+                            shardByRow = false;
+                            break;
+                        case "row":
+                            shardByRow = true;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Option --shard-by expects id or row but was " + value);
+                    }
+                    break;
+                case "--debounce":
+                    options.withDebounceMillis(parseInt(name, value));
+                    break;
+                case "--pattern":
+                    options.withPattern(requireValue(name, value));
+                    break;
+                case "--dest-root":
+                    options.withDestinationRoot(requireValue(name, value));
+                    break;
+                case "--print":
+                    paper = String.valueOf(value);
+                    break;
+                case "--print-grid":
+                    grid = String.valueOf(value);
+                    break;
+                case "--print-dpi":
+                    dpi = parseInt(name, value);
+                    break;
+                case "--print-margin":
+                    margin = parseMillimetres(name, value);
+                    break;
+                case "--print-bleed":
+                    bleed = parseMillimetres(name, value);
+                    break;
+                case "--png-level":
+                    pngLevel = parseInt(name, value);
+                    break;
+                case "--png-strategy":
+                    pngStrategy = PngEncoder.strategy(String.valueOf(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        options.getRenderOptions().withPngEncoder(new PngEncoder(pngLevel, pngStrategy));
+        if (shard != null) {
+            options.withShard(Shard.parse(shard, shardByRow));
+        }
+        if (paper != null) {
+            double[] size = SheetLayout.paper(paper);
+            int[] cells = SheetLayout.grid(grid);
+            options.withPrintLayout(new SheetLayout(size[0], size[1], dpi, cells[0], cells[1], margin, bleed));
+        }
+        return options.check();
+    }
+
+    /**
+     * Checks that no two options conflict, for options changed after they were parsed.
+     *
+     * @return the current options
+     * @throws IllegalArgumentException if two options cannot be combined
+     */
+    public GeneratorOptions check() {
+        if (printLayout != null && (incremental || resume || verifyRate > 0
+                || renderOptions.getFormat() != RenderOptions.Format.PNG)) {
+            throw new IllegalArgumentException(
+                    "--print cannot be combined with --incremental, --resume, --verify or --svg");
+        }
+        if (zip && incremental) {
+            throw new IllegalArgumentException("--incremental cannot be combined with --zip");
+        }
+        if (zip && resume) {
+            throw new IllegalArgumentException("--resume cannot be combined with --zip");
+        }
+        return this;
+    }
+
+    /**
+     * @return independent options with the same settings, to change without affecting these
+     */
+    public GeneratorOptions copy() {
+        GeneratorOptions copy = new GeneratorOptions();
+        copy.threads = threads;
+        copy.virtualThreads = virtualThreads;
+        copy.incremental = incremental;
+        copy.resume = resume;
+        copy.journal = journal;
+        copy.cacheSize = cacheSize;
+        copy.writeQueue = writeQueue;
+        copy.ioThreads = ioThreads;
+        copy.verifyRate = verifyRate;
+        copy.verifyThreads = verifyThreads;
+        copy.verifyQuietZone = verifyQuietZone;
+        copy.zip = zip;
+        copy.quiet = quiet;
+        copy.statsFile = statsFile;
+        copy.inputFormat = inputFormat;
+        copy.type = type;
+        copy.sheet = sheet;
+        copy.charset = charset;
+        copy.shard = shard;
+        copy.listName = listName;
+        copy.debounceMillis = debounceMillis;
+        copy.pattern = pattern;
+        copy.destinationRoot = destinationRoot;
+        copy.printLayout = printLayout;
+        copy.renderOptions.withSize(renderOptions.getSize())
+                .withFormat(renderOptions.getFormat())
+                .withFastEncoder(renderOptions.isFastEncoder(), renderOptions.isMaskHeuristic())
+                .withVersion(renderOptions.getVersion())
+                .withPngEncoder(renderOptions.getPngEncoder());
+        return copy;
+    }
+
+    private static String requireValue(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Option " + name + " expects a value, as in " + name + "=VALUE");
+        }
+        return value;
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " expects a number but was " + value);
+        }
+    }
+
+    private static double parseRate(String name, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " expects a rate from 0 to 1 but was " + value);
+        }
+    }
+
+    private static double parseMillimetres(String name, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " expects millimetres but was " + value);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads the number of rows encoded and rendered concurrently
+     * @return the current options
+     */
+    public GeneratorOptions withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @param virtualThreads run rows on as many virtual threads as the thread count when the JVM supports them
+     * @return the current options
+     */
+    public GeneratorOptions withVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * @param incremental skip rows whose output is unchanged since the last run and prune outputs of removed rows,
+     *                    see {@link Manifest}
+     * @return the current options
+     */
+    public GeneratorOptions withIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * @param resume skip rows the {@link Journal} of an interrupted earlier attempt records as finished
+     * @return the current options
+     */
+    public GeneratorOptions withResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    public boolean isJournal() {
+        return journal;
+    }
+
+    /**
+     * @param journal log every finished row to a {@link Journal} in a directory destination, needed by resume
+     * @return the current options
+     */
+    public GeneratorOptions withJournal(boolean journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize the number of encoded codes kept for rows repeating a payload, 0 disables the cache
+     * @return the current options
+     */
+    public GeneratorOptions withCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative but was " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public int getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * @param writeQueue the number of finished labels that may wait for the I/O threads, see {@link WriteBehind}, 0
+     *                   to write every label on the worker that rendered it
+     * @return the current options
+     */
+    public GeneratorOptions withWriteQueue(int writeQueue) {
+        if (writeQueue < 0) {
+            throw new IllegalArgumentException("writeQueue must not be negative but was " + writeQueue);
+        }
+        this.writeQueue = writeQueue;
+        return this;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * @param ioThreads the number of threads writing queued labels
+     * @return the current options
+     */
+    public GeneratorOptions withIoThreads(int ioThreads) {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("ioThreads must be at least 1 but was " + ioThreads);
+        }
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    public double getVerifyRate() {
+        return verifyRate;
+    }
+
+    /**
+     * @param verifyRate the share of generated labels checked by a {@link LabelVerifier}, from 0 for none to 1 for
+     *                   all
+     * @return the current options
+     */
+    public GeneratorOptions withVerifyRate(double verifyRate) {
+        if (verifyRate < 0 || verifyRate > 1) {
+            throw new IllegalArgumentException("verifyRate must be between 0 and 1 but was " + verifyRate);
+        }
+        this.verifyRate = verifyRate;
+        return this;
+    }
+
+    public int getVerifyThreads() {
+        return verifyThreads;
+    }
+
+    /**
+     * @param verifyThreads the number of threads verifying labels
+     * @return the current options
+     */
+    public GeneratorOptions withVerifyThreads(int verifyThreads) {
+        if (verifyThreads < 1) {
+            throw new IllegalArgumentException("verifyThreads must be at least 1 but was " + verifyThreads);
+        }
+        this.verifyThreads = verifyThreads;
+        return this;
+    }
+
+    public int getVerifyQuietZone() {
+        return verifyQuietZone;
+    }
+
+    /**
+     * @param verifyQuietZone the margin in modules around the code that verified labels must keep free of text
+     * @return the current options
+     */
+    public GeneratorOptions withVerifyQuietZone(int verifyQuietZone) {
+        if (verifyQuietZone < 0) {
+            throw new IllegalArgumentException("verifyQuietZone must not be negative but was " + verifyQuietZone);
+        }
+        this.verifyQuietZone = verifyQuietZone;
+        return this;
+    }
+
+    public boolean isZip() {
+        return zip;
+    }
+
+    /**
+     * @param zip write all labels into one ZIP archive at the destination instead of a file per label, see
+     *            {@link ZipSink}
+     * @return the current options
+     */
+    public GeneratorOptions withZip(boolean zip) {
+        this.zip = zip;
+        return this;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * @param quiet only print failures and the end of run summary instead of a line per row
+     * @return the current options
+     */
+    public GeneratorOptions withQuiet(boolean quiet) {
+        this.quiet = quiet;
+        return this;
+    }
+
+    public String getStatsFile() {
+        return statsFile;
+    }
+
+    /**
+     * @param statsFile the file to write the JSON summary of {@link RunStats} to, null for none
+     * @return the current options
+     */
+    public GeneratorOptions withStatsFile(String statsFile) {
+        this.statsFile = statsFile;
+        return this;
+    }
+
+    public String getInputFormat() {
+        return inputFormat;
+    }
+
+    /**
+     * @param inputFormat the format of the input, see {@link RowSources}, or null to judge it by the file name
+     * @return the current options
+     */
+    public GeneratorOptions withInputFormat(String inputFormat) {
+        if (inputFormat != null) {
+            inputFormat = inputFormat.toLowerCase(Locale.ROOT);
+            switch (inputFormat) {
+                case RowSources.XLSX:
+                case RowSources.CSV:
+                case RowSources.TSV:
+                case RowSources.TEXT:
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown input format " + inputFormat);
+            }
+        }
+        this.inputFormat = inputFormat;
+        return this;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @param type the record type put in front of spreadsheet rows, e.g. EQ, or null to judge it by the file name
+     * @return the current options
+     */
+    public GeneratorOptions withType(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public int getSheet() {
+        return sheet;
+    }
+
+    /**
+     * @param sheet the number of the only workbook sheet to read counting from 1, or 0 for all sheets
+     * @return the current options
+     */
+    public GeneratorOptions withSheet(int sheet) {
+        if (sheet < 0) {
+            throw new IllegalArgumentException("sheet must not be negative but was " + sheet);
+        }
+        this.sheet = sheet;
+        return this;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @param charset the encoding of csv, tsv and text input
+     * @return the current options
+     */
+    public GeneratorOptions withCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    public Shard getShard() {
+        return shard;
+    }
+
+    /**
+     * @param shard the only shard of the input to generate, see {@link Shard}, or null for all rows
+     * @return the current options
+     */
+    public GeneratorOptions withShard(Shard shard) {
+        this.shard = shard;
+        return this;
+    }
+
+    public String getListName() {
+        return listName;
+    }
+
+    /**
+     * @param listName the name of the input list, e.g. EQListforTest.xlsx, so lists sharing a destination keep a
+     *                 manifest and journal each and only prune their own outputs, or null for one list
+     * @return the current options
+     */
+    public GeneratorOptions withListName(String listName) {
+        this.listName = listName;
+        return this;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * @param debounceMillis how long a watched list must stay unchanged before it is read
+     * @return the current options
+     */
+    public GeneratorOptions withDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("debounceMillis must not be negative but was " + debounceMillis);
+        }
+        this.debounceMillis = debounceMillis;
+        return this;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @param pattern the glob watched file names must match, e.g. *.xlsx
+     * @return the current options
+     */
+    public GeneratorOptions withPattern(String pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("pattern must not be empty");
+        }
+        this.pattern = pattern;
+        return this;
+    }
+
+    public String getDestinationRoot() {
+        return destinationRoot;
+    }
+
+    /**
+     * @param destinationRoot the directory the destinations requested from a {@link LabelServer} must lie in, or
+     *                        null to refuse requested destinations
+     * @return the current options
+     */
+    public GeneratorOptions withDestinationRoot(String destinationRoot) {
+        this.destinationRoot = destinationRoot;
+        return this;
+    }
+
+    public SheetLayout getPrintLayout() {
+        return printLayout;
+    }
+
+    /**
+     * @param printLayout impose the labels onto print sheets of this layout instead of writing a file per label, or
+     *                    null
+     * @return the current options
+     */
+    public GeneratorOptions withPrintLayout(SheetLayout printLayout) {
+        this.printLayout = printLayout;
+        return this;
+    }
+
+    public RenderOptions getRenderOptions() {
+        return renderOptions;
+    }
+}
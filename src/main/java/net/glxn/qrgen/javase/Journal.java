@@ -0,0 +1,170 @@
+package net.glxn.qrgen.javase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An append-only log of the rows a FILE run has finished, kept in the destination so a run that dies halfway can be
+ * resumed without encoding the finished rows again.
+ * <p>
+ * Every row is a tab separated line: the zero based row index, the hash of what the output was rendered from (see
+ * {@link LabelJob#digest(RenderOptions)}), the outcome and the file name, or the reason for a failed row. Lines are
+ * written and synced to disk in batches, so a crash loses at most the last batch, which is then simply generated
+ * again. A line cut short by a crash is ignored when the journal is read back.
+ * </p>
+ */
+public class Journal implements AutoCloseable {
+
+    public static final String FILE_NAME = ".qrgen-journal";
+
+    /**
+     * Number of rows written and synced together.
+     */
+    private static final int SYNC_ROWS = 256;
+
+    /**
+     * Longest time in milliseconds a finished row waits to be synced.
+     */
+    private static final long SYNC_MILLIS = 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String destination;
+    private final Map<String, String> finished;
+    private final FileChannel channel;
+    private final StringBuilder batch = new StringBuilder();
+    private int batchRows;
+    private long lastSync = System.currentTimeMillis();
+
+    private Journal(String destination, Map<String, String> finished, FileChannel channel) {
+        this.destination = destination;
+        this.finished = finished;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the journal of a destination.
+     *
+     * @param destination the prefix output file names are appended to
+     * @param fileName    the name of the journal, e.g. .qrgen-journal or .qrgen-journal.shard-2-of-4
+     * @param resume      continue the existing journal, otherwise it is started over
+     * @return the journal
+     * @throws IOException if the journal cannot be read or opened
+     */
+    public static Journal open(String destination, String fileName, boolean resume) throws IOException {
+        Path path = new File(destination + fileName).toPath();
+        Map<String, String> finished = new HashMap<>();
+        boolean cut = false;
+        if (resume && Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length == 4 && isFinished(fields[2])) {
+                        finished.put(fields[3], fields[1]);
+                    }
+                }
+            }
+            cut = Files.size(path) > 0 && !endsWithNewline(path);
+        }
+        FileChannel channel = resume
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        Journal journal = new Journal(destination, finished, channel);
+        if (cut) {
+            journal.batch.append('\n');
+        }
+        return journal;
+    }
+
+    private static boolean isFinished(String outcome) {
+        return ShardRecord.GENERATED.equals(outcome) || ShardRecord.UNCHANGED.equals(outcome)
+                || ShardRecord.RESUMED.equals(outcome);
+    }
+
+    private static boolean endsWithNewline(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            in.read(last, in.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    /**
+     * Tells whether a previous attempt of the run already wrote the file, safe to call from any thread.
+     *
+     * @param fileName the output file name
+     * @param hash     the hash of what the file would be rendered from
+     * @return true if the journal records the file as finished from the same hash and it still exists
+     */
+    public boolean isFinished(String fileName, String hash) {
+        return hash.equals(finished.get(fileName)) && new File(destination + fileName).exists();
+    }
+
+    /**
+     * @return the number of files recorded as finished by previous attempts
+     */
+    public int getFinished() {
+        return finished.size();
+    }
+
+    /**
+     * Appends a row, safe to call from any thread.
+     *
+     * @param row     the zero based index of the row in the input
+     * @param hash    the hash of what the output was rendered from, null for failed rows
+     * @param outcome the outcome as in {@link ShardRecord}
+     * @param detail  the file name, or the reason of a failed row
+     * @throws IOException if the batch cannot be written
+     */
+    synchronized void append(int row, String hash, String outcome, String detail) throws IOException {
+        batch.append(row).append('\t').append(hash == null ? "-" : hash).append('\t').append(outcome).append('\t');
+        if (detail != null) {
+            for (int i = 0; i < detail.length(); i++) {
+                char c = detail.charAt(i);
+                batch.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+            }
+        }
+        batch.append('\n');
+        if (++batchRows >= SYNC_ROWS || System.currentTimeMillis() - lastSync >= SYNC_MILLIS) {
+            sync();
+        }
+    }
+
+    /**
+     * Writes the pending rows and forces them to disk.
+     *
+     * @throws IOException if the rows cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        if (batch.length() > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            batch.setLength(0);
+        }
+        batchRows = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package net.glxn.qrgen.javase;
+
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves the label fonts once and caches the shaped text drawn with them.
+ * <p>
+ * Shaping the Thai machine names is one of the most expensive steps of a label, and plant codes, record types and
+ * common machine names repeat across thousands of rows. Layouts are cached per font and string with least recently
+ * used eviction. {@link TextLayout} is immutable, so cached layouts are shared by all workers.
+ * </p>
+ */
+public class LabelFonts {
+
+    static final String TEXT_FAMILY = "Arial";
+    static final String NAME_FAMILY = "TH SarabunPSK";
+    private static final String THAI_SAMPLE = "กิ่ำ";
+    private static final int MAX_LAYOUTS = 4096;
+    private static final Logger LOG = Logger.getLogger(LabelFonts.class.getName());
+
+    private static volatile LabelFonts instance;
+
+    private final Font textFont;
+    private final Font nameFont;
+    private final FontRenderContext context = new FontRenderContext(null, false, false);
+    private final Map<LayoutKey, TextLayout> layouts = new LinkedHashMap<LayoutKey, TextLayout>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, TextLayout> eldest) {
+            return size() > MAX_LAYOUTS;
+        }
+    };
+
+    LabelFonts(Font textFont, Font nameFont) {
+        this.textFont = textFont;
+        this.nameFont = nameFont;
+    }
+
+    /**
+     * @return the fonts of this JVM, resolved on first use
+     */
+    public static LabelFonts get() {
+        LabelFonts fonts = instance;
+        if (fonts == null) {
+            synchronized (LabelFonts.class) {
+                fonts = instance;
+                if (fonts == null) {
+                    fonts = new LabelFonts(resolve(TEXT_FAMILY, Font.BOLD, 12, "EQ/"),
+                            resolve(NAME_FAMILY, Font.BOLD, 20, THAI_SAMPLE));
+                    instance = fonts;
+                }
+            }
+        }
+        return fonts;
+    }
+
+    /**
+     * Returns the requested font if it is installed, otherwise the first of the logical SansSerif and Dialog fonts
+     * able to display the sample text, so labels look the same on hosts with different fonts installed and Thai
+     * names do not turn into boxes on machines without TH SarabunPSK. Only when neither can display the sample are
+     * the installed families searched. The substitution is logged at {@link Level#CONFIG}.
+     */
+    static Font resolve(String family, int style, int size, String sample) {
+        Font font = new Font(family, style, size);
+        if (family.equalsIgnoreCase(font.getFamily())) {
+            return font;
+        }
+        Font fallback = null;
+        for (String name : new String[]{Font.SANS_SERIF, Font.DIALOG}) {
+            Font candidate = new Font(name, style, size);
+            if (candidate.canDisplayUpTo(sample) == -1) {
+                fallback = candidate;
+                break;
+            }
+        }
+        if (fallback == null) {
+            for (String name : GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames()) {
+                Font candidate = new Font(name, style, size);
+                if (candidate.canDisplayUpTo(sample) == -1) {
+                    fallback = candidate;
+                    break;
+                }
+            }
+        }
+        if (fallback == null) {
+            fallback = new Font(Font.DIALOG, style, size);
+        }
+        LOG.log(Level.CONFIG, "Font {0} is not installed, using {1}", new Object[]{family, fallback.getName()});
+        return fallback;
+    }
+
+    public Font getTextFont() {
+        return textFont;
+    }
+
+    public Font getNameFont() {
+        return nameFont;
+    }
+
+    /**
+     * @param font the font to lay the text out with
+     * @param text the text, must not be empty
+     * @return the shaped text, drawn with {@link TextLayout#draw} at the baseline
+     */
+    public TextLayout layout(Font font, String text) {
+        LayoutKey key = new LayoutKey(font, text);
+        TextLayout layout;
+        synchronized (layouts) {
+            layout = layouts.get(key);
+        }
+        if (layout == null) {
+            layout = new TextLayout(text, font, context);
+            synchronized (layouts) {
+                layouts.put(key, layout);
+            }
+        }
+        return layout;
+    }
+
+    private static class LayoutKey {
+
+        private final Font font;
+        private final String text;
+
+        LayoutKey(Font font, String text) {
+            this.font = font;
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LayoutKey)) {
+                return false;
+            }
+            LayoutKey other = (LayoutKey) o;
+            return font.equals(other.font) && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return font.hashCode() * 31 + text.hashCode();
+        }
+    }
+}
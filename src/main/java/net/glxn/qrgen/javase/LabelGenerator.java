@@ -0,0 +1,114 @@
+package net.glxn.qrgen.javase;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates labels in-process for services that embed the generator instead of running the jar.
+ * <p>
+ * Records are pulled from the iterable only as workers free up, so a lazily produced iterable is not read ahead of
+ * the generator by more than twice the worker count. Every record is reported to the listener in input order on the
+ * thread running the batch. Concurrency, render options, caching and the write queue come from the
+ * {@link GeneratorOptions}, which must not be changed once the generator is created.
+ * </p>
+ * <p>
+ * A generator is thread-safe and batches may be started from several threads at once. Batches into the same directory
+ * with the same list name share its journal and, when incremental, its manifest, so they run one after another, and
+ * an incremental batch prunes the outputs of the other records. Give each set of records its own list name with
+ * {@link GeneratorOptions#withListName(String)}, and thus its own generator, to keep their outputs apart.
+ * </p>
+ */
+public class LabelGenerator {
+
+    private static final AtomicInteger BATCHES = new AtomicInteger();
+
+    /**
+     * Runs every submitted batch on a daemon thread of its own.
+     */
+    private static final Executor THREAD_PER_BATCH = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            Thread thread = new Thread(command, "qrgen-batch-" + BATCHES.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    };
+
+    private final BatchGenerator generator;
+    private final Executor executor;
+
+    /**
+     * @param sink     where finished labels are written, it is not closed by the generator
+     * @param options  the options of every batch
+     * @param listener told the result of every record, may be null
+     */
+    public LabelGenerator(OutputSink sink, GeneratorOptions options, LabelListener listener) {
+        this(sink, options, listener, THREAD_PER_BATCH);
+    }
+
+    /**
+     * @param sink     where finished labels are written, it is not closed by the generator
+     * @param options  the options of every batch
+     * @param listener told the result of every record, may be null
+     * @param executor runs the batches passed to {@link #submit(Iterable)}, each batch takes one of its threads
+     */
+    public LabelGenerator(OutputSink sink, GeneratorOptions options, LabelListener listener, Executor executor) {
+        if (sink == null) {
+            throw new IllegalArgumentException("sink must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.generator = new BatchGenerator(sink, options, listener);
+        this.executor = executor;
+    }
+
+    /**
+     * Generates the labels of the records on the calling thread.
+     *
+     * @param records the records
+     * @return the report of the batch
+     * @throws InterruptedException if the calling thread is interrupted, the batch is abandoned
+     * @throws IOException          if the manifest or the journal cannot be read or written
+     */
+    public BatchReport generate(Iterable<AssetRecord> records) throws InterruptedException, IOException {
+        return generate(records, new RunStats());
+    }
+
+    /**
+     * Generates the labels of the records on the calling thread, recording stage timings.
+     *
+     * @param records the records
+     * @param stats   the stats to record into
+     * @return the report of the batch
+     * @throws InterruptedException if the calling thread is interrupted, the batch is abandoned
+     * @throws IOException          if the manifest or the journal cannot be read or written
+     */
+    public BatchReport generate(Iterable<AssetRecord> records, RunStats stats)
+            throws InterruptedException, IOException {
+        return generator.runRecords(records.iterator(), stats);
+    }
+
+    /**
+     * Starts generating the labels of the records on the executor of the generator, a thread of their own unless
+     * one was given.
+     *
+     * @param records the records
+     * @return the report of the batch, cancelling it with interruption abandons the batch
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the batch
+     */
+    public Future<BatchReport> submit(final Iterable<AssetRecord> records) {
+        FutureTask<BatchReport> task = new FutureTask<>(new Callable<BatchReport>() {
+            @Override
+            public BatchReport call() throws Exception {
+                return generate(records);
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+}
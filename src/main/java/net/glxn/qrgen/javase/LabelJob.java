@@ -0,0 +1,121 @@
+package net.glxn.qrgen.javase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * One label to generate: the payload to encode, the text drawn around it and the name of the output file.
+ */
+class LabelJob {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String name;
+    private final String payload;
+    private final LabelText label;
+
+    LabelJob(String name, String payload, LabelText label) {
+        this.name = name;
+        this.payload = payload;
+        this.label = label;
+    }
+
+    /**
+     * Parses a row such as EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001.
+     *
+     * @param text the row text
+     * @return the job for the row
+     * @throws IllegalArgumentException if the row does not have the expected shape, see {@link AssetRecord#parse}
+     */
+    static LabelJob parse(String text) {
+        return of(AssetRecord.parse(text));
+    }
+
+    static LabelJob of(AssetRecord record) {
+        return new LabelJob(record.getName(), record.getCode(), record.toLabelText());
+    }
+
+    /**
+     * @param render how the label is rendered, its format decides the extension
+     * @return the name of the output file
+     */
+    String getFileName(RenderOptions render) {
+        return name + render.getFormat().getExtension();
+    }
+
+    String getPayload() {
+        return payload;
+    }
+
+    LabelText getLabel() {
+        return label;
+    }
+
+    /**
+     * Renders and encodes the label.
+     *
+     * @param render how to render the label
+     * @param cache  the cache shared by the batch, may be null
+     * @param stats  the stats to record stage timings in, may be null
+     * @return the encoded label
+     */
+    byte[] render(RenderOptions render, EncodeCache cache, RunStats stats) {
+        QRCode code = code(render, cache, stats);
+        if (render.getFormat() == RenderOptions.Format.SVG) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            code.svg(out);
+            return out.toByteArray();
+        }
+        return code.withPngEncoder(render.getPngEncoder()).stream().toByteArray();
+    }
+
+    /**
+     * @return the code of the label set up as {@link #render} renders it
+     */
+    QRCode code(RenderOptions render, EncodeCache cache, RunStats stats) {
+        QRCode code = QRCode.from(payload).withSize(render.getSize(), render.getSize()).withLabel(label)
+                .withCache(cache).withStats(stats);
+        if (render.isFastEncoder()) {
+            code.withFastEncoder(render.isMaskHeuristic());
+        }
+        if (render.getVersion() > 0) {
+            code.withVersion(render.getVersion());
+        }
+        return code;
+    }
+
+    /**
+     * @param render how the label is rendered
+     * @return a hash of everything that ends up in the rendered file: payload, label text, size and render settings
+     */
+    String digest(RenderOptions render) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        update(digest, payload);
+        update(digest, label.getType());
+        update(digest, label.getCode());
+        update(digest, label.getName());
+        update(digest, render.toString());
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+}
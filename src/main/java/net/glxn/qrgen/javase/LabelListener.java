@@ -0,0 +1,12 @@
+package net.glxn.qrgen.javase;
+
+/**
+ * Told the result of every row of a batch, in input order, on the thread running the batch.
+ */
+public interface LabelListener {
+
+    /**
+     * @param result the result of one row
+     */
+    void completed(LabelResult result);
+}
@@ -0,0 +1,187 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.client.j2se.MatrixToImageConfig;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws a QR {@link BitMatrix} and its {@link LabelText} into a single in-memory image, so a label is encoded once
+ * instead of being written, read back and written again.
+ * <p>
+ * The label lines go into a band of {@link #TEXT_BAND} pixels along the edges of the label, and a labelled code is
+ * encoded inside that band with its full quiet zone of four modules, see {@link #inset(BitMatrix, int)}, so no text
+ * is drawn within four modules of the code.
+ * </p>
+ */
+public class LabelRenderer {
+
+    /**
+     * Identifies the current layout, change it whenever the rendered output changes so incremental runs regenerate.
+     */
+    public static final String VERSION = "3";
+
+    /**
+     * Width of the band along the edges of a 400 pixel label that holds the label lines and no part of the code.
+     */
+    static final int TEXT_BAND = 48;
+
+    static final int TYPE_X = 20;
+    static final int TYPE_Y = 200;
+    static final int CODE_X = 50;
+    static final int CODE_Y = 365;
+    static final int NAME_Y = 385;
+
+    private final MatrixToImageConfig config;
+    private final LabelFonts fonts;
+
+    public LabelRenderer(MatrixToImageConfig config) {
+        this(config, LabelFonts.get());
+    }
+
+    public LabelRenderer(MatrixToImageConfig config, LabelFonts fonts) {
+        this.config = config;
+        this.fonts = fonts;
+    }
+
+    /**
+     * @return the width of the text band of a label of the given size, narrower on labels too small for the full band
+     */
+    static int textBand(int width, int height) {
+        return Math.min(TEXT_BAND, Math.min(width, height) / 8);
+    }
+
+    /**
+     * Places a code encoded with its quiet zone in the middle of a label, leaving the text band around it blank.
+     *
+     * @param code the code, encoded at the label size less twice the band
+     * @param band the width of the text band
+     * @return the matrix of the whole label
+     */
+    static BitMatrix inset(BitMatrix code, int band) {
+        BitMatrix label = new BitMatrix(code.getWidth() + 2 * band, code.getHeight() + 2 * band);
+        BitArray row = new BitArray(code.getWidth());
+        for (int y = 0; y < code.getHeight(); y++) {
+            row = code.getRow(y, row);
+            int x = row.getNextSet(0);
+            while (x < code.getWidth()) {
+                int end = row.getNextUnset(x);
+                label.setRegion(x + band, y + band, end - x, 1);
+                x = row.getNextSet(end);
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Renders the matrix and draws the label lines on top of it.
+     *
+     * @param matrix the QR matrix as returned by {@link QRCode#createMatrix(String)}
+     * @param label  the text to draw
+     * @return the rendered label
+     */
+    public BufferedImage render(BitMatrix matrix, LabelText label) {
+        BufferedImage image = rasterize(matrix);
+        drawLabel(image, label);
+        return image;
+    }
+
+    /**
+     * @param matrix the QR matrix
+     * @return an image of the matrix without any text
+     */
+    public BufferedImage rasterize(BitMatrix matrix) {
+        return MatrixToImageWriter.toBufferedImage(matrix, config);
+    }
+
+    /**
+     * Rasterizes the matrix into a packed 1-bit image reused by the calling thread, see
+     * {@link BinaryRaster#drawPooled}. Only possible when the text colour is one of the two colours of the code.
+     *
+     * @param matrix the QR matrix
+     * @return the pooled image of the matrix, valid until the thread rasterizes the next label of the same size
+     * @throws IllegalStateException if the code is not drawn in black, the colour of the text
+     */
+    public BufferedImage rasterizePooled(BitMatrix matrix) {
+        if (!isPoolable()) {
+            throw new IllegalStateException("Pooled labels need black as the on colour");
+        }
+        return BinaryRaster.drawPooled(matrix, config.getPixelOffColor(), config.getPixelOnColor());
+    }
+
+    /**
+     * Rasterizes the matrix into a new packed 1-bit image, which unlike {@link #rasterizePooled(BitMatrix)} may be
+     * kept and handed to other threads.
+     *
+     * @param matrix the QR matrix
+     * @return a new image of the matrix
+     * @throws IllegalStateException if the code is not drawn in black, the colour of the text
+     */
+    public BufferedImage rasterizeBinary(BitMatrix matrix) {
+        if (!isPoolable()) {
+            throw new IllegalStateException("Binary labels need black as the on colour");
+        }
+        BufferedImage image = BinaryRaster.create(matrix.getWidth(), matrix.getHeight(), config.getPixelOffColor(),
+                config.getPixelOnColor());
+        BinaryRaster.draw(matrix, image, null);
+        return image;
+    }
+
+    /**
+     * @return true if the label can be drawn into a two colour image, see {@link #rasterizePooled(BitMatrix)}
+     */
+    public boolean isPoolable() {
+        return config.getPixelOnColor() == Color.BLACK.getRGB();
+    }
+
+    /**
+     * Draws the label lines onto a rasterized matrix.
+     *
+     * @param image the image returned by {@link #rasterize(BitMatrix)} or {@link #rasterizePooled(BitMatrix)}
+     * @param label the text to draw
+     */
+    public void drawLabel(BufferedImage image, LabelText label) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.BLACK);
+            draw(g, fonts.getTextFont(), label.getType(), TYPE_X, TYPE_Y);
+            draw(g, fonts.getTextFont(), label.getCode(), CODE_X, CODE_Y);
+            if (label.hasName()) {
+                draw(g, fonts.getNameFont(), label.getName(), CODE_X, NAME_Y);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * @param label the text to draw
+     * @return the pixel bounds of every non-empty label line as {@link #drawLabel} draws it, in drawing order
+     */
+    public List<Rectangle> textBounds(LabelText label) {
+        List<Rectangle> bounds = new ArrayList<>(3);
+        bounds(bounds, fonts.getTextFont(), label.getType(), TYPE_X, TYPE_Y);
+        bounds(bounds, fonts.getTextFont(), label.getCode(), CODE_X, CODE_Y);
+        if (label.hasName()) {
+            bounds(bounds, fonts.getNameFont(), label.getName(), CODE_X, NAME_Y);
+        }
+        return bounds;
+    }
+
+    private void bounds(List<Rectangle> bounds, Font font, String text, int x, int y) {
+        if (text.length() > 0) {
+            bounds.add(fonts.layout(font, text).getPixelBounds(null, x, y));
+        }
+    }
+
+    private void draw(Graphics2D g, Font font, String text, int x, int y) {
+        if (text.length() > 0) {
+            fonts.layout(font, text).draw(g, x, y);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.glxn.qrgen.javase;
+
+/**
+ * The result of one row of a batch, see {@link LabelListener}.
+ */
+public class LabelResult {
+
+    public enum Status {
+        /**
+         * The label was rendered and handed to the sink.
+         */
+        GENERATED,
+        /**
+         * An incremental run kept the label of an earlier run.
+         */
+        UNCHANGED,
+        /**
+         * A resumed run kept the label an interrupted attempt had finished.
+         */
+        RESUMED,
+        /**
+         * The row could not be turned into a label, see {@link #getCause()}.
+         */
+        FAILED,
+        /**
+         * The row was empty.
+         */
+        EMPTY
+    }
+
+    private final int row;
+    private final String text;
+    private final String fileName;
+    private final Status status;
+    private final Throwable cause;
+
+    LabelResult(int row, String text, String fileName, Status status, Throwable cause) {
+        this.row = row;
+        this.text = text;
+        this.fileName = fileName;
+        this.status = status;
+        this.cause = cause;
+    }
+
+    /**
+     * @return the zero based index of the row in the input
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return the row text, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the file name of the label, null if the row failed or was empty
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return why the row failed, null unless the status is {@link Status#FAILED}
+     */
+    public Throwable getCause() {
+        return cause;
+    }
+}
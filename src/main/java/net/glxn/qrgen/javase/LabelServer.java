@@ -0,0 +1,248 @@
+package net.glxn.qrgen.javase;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived generation server, so callers generating one code at a time do not pay for JVM startup, font
+ * initialization and class loading on every call.
+ * <p>
+ * The server listens on the loopback interface only and keeps connections alive between requests.
+ * </p>
+ * <ul>
+ * <li><code>POST /label</code> with one row per line, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001.
+ * A single row is answered with the PNG, several rows with a ZIP archive as written by {@link ZipSink}. With
+ * <code>?dest=path</code> the labels are written to that directory instead and their file names are returned. The
+ * directory is resolved against the destination root given at startup and must lie inside it; without a root,
+ * destinations are refused.</li>
+ * <li><code>GET /stats</code> returns the queue depth, the number of requests and labels and the request
+ * latency.</li>
+ * </ul>
+ */
+public class LabelServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final RenderOptions render;
+    private final EncodeCache cache;
+    private final Path destinationRoot;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong labels = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param port    the loopback port to listen on, 0 picks a free one
+     * @param options the threads, cache, render options and destination root to use
+     * @throws IOException if the port cannot be bound or the destination root does not exist
+     */
+    public LabelServer(int port, GeneratorOptions options) throws IOException {
+        this.render = options.getRenderOptions();
+        this.destinationRoot = options.getDestinationRoot() == null ? null
+                : Paths.get(options.getDestinationRoot()).toRealPath();
+        this.cache = new EncodeCache(Math.max(1, options.getCacheSize()), Math.max(1, options.getCacheSize()) * 8 * 1024L);
+        this.executor = new ThreadPoolExecutor(options.getThreads(), options.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/label", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                label(exchange);
+            }
+        });
+        server.createContext("/stats", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, "text/plain; charset=UTF-8", stats().getBytes(UTF_8));
+            }
+        });
+    }
+
+    /**
+     * Renders one label to load and initialize the encoder, fonts and PNG encoder, then starts serving.
+     */
+    public void start() {
+        LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001").render(render, null, null);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given number of seconds for running ones.
+     */
+    public void stop(int seconds) {
+        server.stop(seconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return queue depth, request and label counts and latency as <code>name value</code> lines
+     */
+    public String stats() {
+        long count = requests.get();
+        return "queue " + executor.getQueue().size() + "\n"
+                + "active " + executor.getActiveCount() + "\n"
+                + "requests " + count + "\n"
+                + "labels " + labels.get() + "\n"
+                + "latency.avg.ms " + (count == 0 ? 0 : totalNanos.get() / count / 1000000.0) + "\n"
+                + "latency.max.ms " + maxNanos.get() / 1000000.0 + "\n";
+    }
+
+    private void label(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        boolean streaming = false;
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405, "text/plain", "POST rows to /label\n".getBytes(UTF_8));
+                return;
+            }
+            List<LabelJob> jobs = new ArrayList<>();
+            try {
+                for (String row : readRows(exchange)) {
+                    jobs.add(LabelJob.parse(row));
+                }
+            } catch (RuntimeException e) {
+                respond(exchange, 400, "text/plain", ("Malformed row " + e + "\n").getBytes(UTF_8));
+                return;
+            }
+            if (jobs.isEmpty()) {
+                respond(exchange, 400, "text/plain", "No rows\n".getBytes(UTF_8));
+                return;
+            }
+            String dest = query(exchange, "dest");
+            if (dest != null) {
+                Path directory = destination(dest);
+                if (directory == null) {
+                    respond(exchange, 403, "text/plain", ("Destination not allowed " + dest + "\n").getBytes(UTF_8));
+                    return;
+                }
+                StringBuilder names = new StringBuilder();
+                DirectorySink sink = new DirectorySink(directory.toString() + File.separator);
+                for (LabelJob job : jobs) {
+                    sink.write(job.getFileName(render), job.render(render, cache, null));
+                    names.append(job.getFileName(render)).append('\n');
+                }
+                respond(exchange, 200, "text/plain; charset=UTF-8", names.toString().getBytes(UTF_8));
+            } else if (jobs.size() == 1) {
+                respond(exchange, 200, render.getFormat() == RenderOptions.Format.SVG ? "image/svg+xml" : "image/png",
+                        jobs.get(0).render(render, cache, null));
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "application/zip");
+                exchange.sendResponseHeaders(200, 0);
+                streaming = true;
+                ZipSink sink = new ZipSink(exchange.getResponseBody());
+                for (LabelJob job : jobs) {
+                    sink.write(job.getFileName(render), job.render(render, cache, null));
+                }
+                sink.close();
+            }
+            labels.addAndGet(jobs.size());
+        } catch (IOException | RuntimeException e) {
+            if (streaming) {
+                // the 200 is sent: fail the exchange so the server drops the connection before the archive is
+                // finished, instead of ending the response as if it were complete
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+            respond(exchange, 500, "text/plain", (e + "\n").getBytes(UTF_8));
+        } finally {
+            if (!streaming) {
+                exchange.close();
+            }
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param dest a requested destination, relative to the destination root or absolute
+     * @return the existing directory inside the destination root it names, or null if it is outside or there is no
+     * root
+     */
+    private Path destination(String dest) throws IOException {
+        if (destinationRoot == null) {
+            return null;
+        }
+        Path directory;
+        try {
+            directory = destinationRoot.resolve(dest).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!directory.startsWith(destinationRoot)) {
+            return null;
+        }
+        if (Files.isDirectory(directory)) {
+            directory = directory.toRealPath();
+        }
+        return directory.startsWith(destinationRoot) ? directory : null;
+    }
+
+    private List<String> readRows(HttpExchange exchange) throws IOException {
+        List<String> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.length() > 0) {
+                rows.add(line);
+            }
+        }
+        return rows;
+    }
+
+    private static String query(HttpExchange exchange, String name) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private void record(long nanos) {
+        requests.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+    }
+}
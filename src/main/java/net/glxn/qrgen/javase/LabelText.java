@@ -0,0 +1,38 @@
+package net.glxn.qrgen.javase;
+
+/**
+ * The text printed around a QR label: the record type (EQ/FL), the encoded code and the machine name.
+ */
+public class LabelText {
+
+    private final String type;
+    private final String code;
+    private final String name;
+
+    /**
+     * @param type the record type drawn next to the code, e.g. EQ
+     * @param code the encoded code drawn below the QR
+     * @param name the machine name drawn on the last line, may be null when the row has none
+     */
+    public LabelText(String type, String code, String name) {
+        this.type = type;
+        this.code = code;
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean hasName() {
+        return name != null;
+    }
+}
@@ -0,0 +1,261 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Checks rendered labels on a pool of its own, so the workers keep rendering while labels are verified.
+ * <p>
+ * A PNG label is decoded back with ZXing's {@link QRCodeReader}, which must find the code in the whole label as a
+ * scanner does and read the payload it was rendered from. The label lines, as laid out by {@link LabelRenderer}, must
+ * lie inside the label, off the modules of the code and out of a quiet zone of the configured number of modules
+ * around it, four by default. SVG labels only get the layout checks.
+ * </p>
+ * <p>
+ * A sampling rate below 1 verifies that share of the labels, picked by a CRC-32 of the file name so the same labels
+ * are picked on every run.
+ * </p>
+ */
+public class LabelVerifier {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Map<DecodeHintType, ?> PURE = Collections.singletonMap(DecodeHintType.PURE_BARCODE, true);
+
+    private final double rate;
+    private final int quietZone;
+    private final LabelRenderer renderer = new LabelRenderer(QRCode.DEFAULT_CONFIG);
+    private final ExecutorService executor;
+    private final Semaphore queued;
+    private final AtomicInteger verified = new AtomicInteger();
+
+    /**
+     * @param threads   the number of threads verifying labels
+     * @param rate      the share of labels to verify, from 0 to 1
+     * @param quietZone the width in modules of the margin around the code that text must stay out of
+     */
+    public LabelVerifier(int threads, double rate, int quietZone) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("rate must be between 0 and 1 but was " + rate);
+        }
+        this.rate = rate;
+        this.quietZone = quietZone;
+        this.queued = new Semaphore(threads * 4);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "qrgen-verifier-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param fileName the name of the label file
+     * @return true if the label is part of the sample
+     */
+    public boolean isSampled(String fileName) {
+        if (rate >= 1) {
+            return true;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(fileName.getBytes(UTF_8));
+        return crc.getValue() < rate * 0x100000000L;
+    }
+
+    /**
+     * Queues a sampled label for verification, waiting while a few labels per thread are already queued. Problems
+     * are added to the report.
+     */
+    void submit(final int row, final String name, final LabelJob job, final RenderOptions render,
+                final EncodeCache cache, final byte[] data, final BatchReport report) throws InterruptedException {
+        if (!isSampled(name)) {
+            return;
+        }
+        queued.acquire();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (String problem : check(job, render, cache, data)) {
+                        report.addVerifyFailure(row, name, problem);
+                    }
+                    verified.incrementAndGet();
+                } catch (RuntimeException e) {
+                    report.addVerifyFailure(row, name, "could not be verified: " + e);
+                } finally {
+                    queued.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * @param job    the job the label was rendered from
+     * @param render how it was rendered
+     * @param cache  the cache of the batch, to find its matrix again, may be null
+     * @param data   the rendered label
+     * @return what is wrong with the label, empty if it is good
+     */
+    List<String> check(LabelJob job, RenderOptions render, EncodeCache cache, byte[] data) {
+        List<String> problems = new ArrayList<>();
+        BitMatrix matrix;
+        try {
+            matrix = job.code(render, cache, null).createMatrix(job.getPayload());
+        } catch (WriterException e) {
+            problems.add("could not be encoded again: " + e.getMessage());
+            return problems;
+        }
+        int[] symbol = matrix.getEnclosingRectangle();
+        if (symbol == null) {
+            return problems;
+        }
+        Rectangle code = new Rectangle(symbol[0], symbol[1], symbol[2], symbol[3]);
+        if (render.getFormat() == RenderOptions.Format.PNG) {
+            checkDecode(job.getPayload(), data, code, problems);
+        }
+        if (job.getLabel() != null) {
+            checkLayout(job, matrix, code, problems);
+        }
+        return problems;
+    }
+
+    /**
+     * Decodes the label as a scanner would, finding the code anywhere in it and in any orientation; ZXing's detector
+     * misses about 2% of perfectly drawn codes in one orientation and finds them turned. A code the detector cannot
+     * find is a problem either way, it is decoded again from the area the code was drawn in only to tell a code that
+     * is damaged from one that is intact but not found.
+     */
+    private void checkDecode(String payload, byte[] data, Rectangle code, List<String> problems) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            problems.add("is not a readable image: " + e.getMessage());
+            return;
+        }
+        if (image == null) {
+            problems.add("is not a readable image");
+            return;
+        }
+        String text;
+        try {
+            text = decodeTurned(new BufferedImageLuminanceSource(image));
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+            Rectangle area = code.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+            try {
+                text = decode(image.getSubimage(area.x, area.y, area.width, area.height), PURE);
+            } catch (NotFoundException | ChecksumException | FormatException pure) {
+                problems.add(e instanceof NotFoundException ? "does not scan, no code found"
+                        : "does not scan, the code is damaged");
+                return;
+            }
+            problems.add("does not scan, the code is intact but the detector does not find it in the label");
+        }
+        if (!payload.equals(text)) {
+            problems.add("scans as \"" + text + "\" instead of \"" + payload + "\"");
+        }
+    }
+
+    /**
+     * @return the text of the code found in the label turned by 0, 90, 180 or 270 degrees, whichever scans first
+     * @throws ReaderException the failure of the upright label if the code is found in no orientation
+     */
+    private static String decodeTurned(LuminanceSource label)
+            throws NotFoundException, ChecksumException, FormatException {
+        ReaderException upright = null;
+        LuminanceSource turned = label;
+        for (int quarter = 0; quarter < 4; quarter++) {
+            try {
+                return decode(turned, null);
+            } catch (NotFoundException | ChecksumException | FormatException e) {
+                if (upright == null) {
+                    upright = e;
+                }
+            }
+            turned = turned.rotateCounterClockwise();
+        }
+        if (upright instanceof NotFoundException) {
+            throw (NotFoundException) upright;
+        }
+        if (upright instanceof ChecksumException) {
+            throw (ChecksumException) upright;
+        }
+        throw (FormatException) upright;
+    }
+
+    private static String decode(BufferedImage image, Map<DecodeHintType, ?> hints)
+            throws NotFoundException, ChecksumException, FormatException {
+        return decode(new BufferedImageLuminanceSource(image), hints);
+    }
+
+    private static String decode(LuminanceSource source, Map<DecodeHintType, ?> hints)
+            throws NotFoundException, ChecksumException, FormatException {
+        return new QRCodeReader().decode(new BinaryBitmap(new HybridBinarizer(source)), hints).getText();
+    }
+
+    private void checkLayout(LabelJob job, BitMatrix matrix, Rectangle code, List<String> problems) {
+        int module = SvgRenderer.moduleSize(matrix, matrix.getTopLeftOnBit());
+        Rectangle zone = new Rectangle(code);
+        zone.grow(quietZone * module, quietZone * module);
+        Rectangle label = new Rectangle(0, 0, matrix.getWidth(), matrix.getHeight());
+        for (Rectangle text : renderer.textBounds(job.getLabel())) {
+            String line = "text at " + text.x + "," + text.y + " " + text.width + "x" + text.height;
+            if (!label.contains(text)) {
+                problems.add(line + " is cut off at the edge of the label");
+            }
+            if (text.intersects(code)) {
+                problems.add(line + " overlaps the code");
+            } else if (text.intersects(zone)) {
+                problems.add(line + " is inside the quiet zone of " + quietZone + (quietZone == 1 ? " module" : " modules"));
+            }
+        }
+    }
+
+    /**
+     * @return the number of labels verified so far
+     */
+    public int getVerified() {
+        return verified.get();
+    }
+
+    /**
+     * Waits for the queued labels to be verified and stops the pool.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,202 @@
+package net.glxn.qrgen.javase;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory for equipment and functional location lists and regenerates their labels as they are
+ * dropped or changed, in one long-lived JVM with a warm encoder and fonts.
+ * <p>
+ * A list is read once it has not changed for the debounce interval and its size and modification time are the same
+ * on two checks, so a list still being copied is not read half written. Lists already in the directory are picked up
+ * at start. Every list is generated incrementally with a manifest of its own, so only rows that are new or changed
+ * since the previous version of the list are rendered, and only the outputs of rows dropped from that list are
+ * pruned.
+ * </p>
+ */
+public class ListWatcher implements Closeable {
+
+    private final Path directory;
+    private final String destination;
+    private final GeneratorOptions options;
+    private final PathMatcher matcher;
+    private final PrintStream out;
+    private final WatchService watch;
+    /**
+     * Lists waiting to settle, with the time of their last event and the size and time seen then.
+     */
+    private final Map<Path, Change> changes = new LinkedHashMap<>();
+    /**
+     * Size and time of every list when it was last generated, to ignore events that did not change it.
+     */
+    private final Map<Path, String> generated = new HashMap<>();
+
+    /**
+     * @param directory   the directory the lists are dropped into
+     * @param destination the directory the labels are written to
+     * @param options     the options of every run, copied with the list name and incremental option set by the
+     *                    watcher, so the caller's options are left unchanged
+     * @param out         where the progress of every run is printed
+     * @throws IOException              if the directory cannot be watched
+     * @throws IllegalArgumentException if the options ask for print sheets, a ZIP or resume, which a directory of
+     *                                  incrementally generated labels cannot have
+     */
+    public ListWatcher(String directory, String destination, GeneratorOptions options, PrintStream out)
+            throws IOException {
+        if (options.getPrintLayout() != null || options.isZip() || options.isResume()) {
+            throw new IllegalArgumentException("WATCH cannot be combined with --print, --zip or --resume");
+        }
+        this.options = options.copy().withIncremental(true).withJournal(false).check();
+        this.directory = new File(directory).toPath().toAbsolutePath();
+        this.destination = destination;
+        this.matcher = this.directory.getFileSystem().getPathMatcher("glob:" + options.getPattern());
+        this.out = out;
+        this.watch = this.directory.getFileSystem().newWatchService();
+        this.directory.register(watch, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Renders one label to load and initialize the encoder, fonts and PNG encoder, then generates lists as they
+     * change until the watcher is closed.
+     *
+     * @throws IOException          if the directory cannot be listed
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void run() throws IOException, InterruptedException {
+        LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001").render(options.getRenderOptions(), null, null);
+        scan();
+        try {
+            while (true) {
+                WatchKey key = changes.isEmpty() ? watch.take()
+                        : watch.poll(options.getDebounceMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan();
+                        } else {
+                            changed(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                generateSettled();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> lists = Files.newDirectoryStream(directory)) {
+            for (Path list : lists) {
+                changed(list);
+            }
+        }
+    }
+
+    private void changed(Path list) {
+        String name = list.getFileName().toString();
+        if (!matcher.matches(list.getFileName()) || name.startsWith("~$") || name.startsWith(".")) {
+            return;
+        }
+        changes.put(list, new Change(System.currentTimeMillis(), version(list)));
+    }
+
+    /**
+     * Generates the lists that had no event for the debounce interval and kept their size and time.
+     */
+    private void generateSettled() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Change>> entries = changes.entrySet().iterator();
+        Map<Path, Change> moved = new HashMap<>();
+        while (entries.hasNext()) {
+            Map.Entry<Path, Change> entry = entries.next();
+            Path list = entry.getKey();
+            Change change = entry.getValue();
+            if (now - change.time < options.getDebounceMillis()) {
+                continue;
+            }
+            entries.remove();
+            String version = version(list);
+            if (version == null || version.equals(generated.get(list))) {
+                continue;
+            }
+            if (!version.equals(change.version)) {
+                moved.put(list, new Change(now, version));
+                continue;
+            }
+            if (generate(list)) {
+                generated.put(list, version);
+            }
+        }
+        changes.putAll(moved);
+    }
+
+    /**
+     * @return true if the list could be read, a list that cannot be read is retried on its next change
+     */
+    private boolean generate(Path list) throws InterruptedException {
+        String name = list.getFileName().toString();
+        out.println("List :" + name);
+        RunStats stats = new RunStats();
+        RowSource rows;
+        try {
+            rows = RowSources.open(list.toString(), options, stats);
+        } catch (IOException e) {
+            out.println("Failed to read " + name + " :" + e.getMessage());
+            return false;
+        }
+        try (DirectorySink sink = new DirectorySink(destination)) {
+            options.withListName(name);
+            BatchReport report = new BatchGenerator(sink, options, new ConsoleListener(out, options.isQuiet()))
+                    .run(rows, stats);
+            QRCode.printReport(out, report, options);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            out.println("Failed to generate " + name + " :" + e.getMessage());
+            return false;
+        } finally {
+            rows.close();
+        }
+    }
+
+    private static String version(Path list) {
+        File file = list.toFile();
+        return file.isFile() ? file.length() + ":" + file.lastModified() : null;
+    }
+
+    /**
+     * Stops watching, {@link #run()} returns once the list in progress, if any, is generated.
+     */
+    @Override
+    public void close() throws IOException {
+        watch.close();
+    }
+
+    private static class Change {
+
+        private final long time;
+        private final String version;
+
+        Change(long time, String version) {
+            this.time = time;
+            this.version = version;
+        }
+    }
+}
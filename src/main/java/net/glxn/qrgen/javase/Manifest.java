@@ -0,0 +1,141 @@
+package net.glxn.qrgen.javase;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records, for every file generated into a destination, a hash of what it was rendered from. An incremental run
+ * uses it to skip rows whose output is still current and to prune outputs of rows that are gone.
+ * <p>
+ * The manifest is a tab separated text file next to the outputs, one <code>file name, hash</code> pair per line.
+ * </p>
+ */
+public class Manifest {
+
+    public static final String FILE_NAME = ".qrgen-manifest";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String destination;
+    private final String manifestName;
+    private final Map<String, String> previous;
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+    private final Set<String> seen = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private Manifest(String destination, String fileName, Map<String, String> previous) {
+        this.destination = destination;
+        this.manifestName = fileName;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the manifest of a destination, a destination without one starts empty.
+     *
+     * @param destination the prefix output file names are appended to
+     * @return the manifest
+     * @throws IOException if an existing manifest cannot be read
+     */
+    public static Manifest load(String destination) throws IOException {
+        return load(destination, FILE_NAME);
+    }
+
+    /**
+     * Loads a manifest of a destination shared by several shards, each keeping its own manifest so a shard only
+     * skips and prunes its own outputs.
+     *
+     * @param destination the prefix output file names are appended to
+     * @param fileName    the name of the manifest, e.g. .qrgen-manifest.shard-2-of-4
+     * @return the manifest
+     * @throws IOException if an existing manifest cannot be read
+     */
+    public static Manifest load(String destination, String fileName) throws IOException {
+        Map<String, String> previous = new HashMap<>();
+        Path path = new File(destination + fileName).toPath();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab > 0) {
+                        previous.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+        return new Manifest(destination, fileName, previous);
+    }
+
+    /**
+     * Marks the file as part of this run and tells whether it can be kept as is.
+     *
+     * @param fileName the output file name
+     * @param hash     the hash of the inputs the file would be rendered from
+     * @return true if the previous run rendered the file from the same inputs and it still exists
+     */
+    public boolean isUpToDate(String fileName, String hash) {
+        seen.add(fileName);
+        if (hash.equals(previous.get(fileName)) && new File(destination + fileName).exists()) {
+            current.put(fileName, hash);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a file that has been generated in this run.
+     */
+    public void put(String fileName, String hash) {
+        seen.add(fileName);
+        current.put(fileName, hash);
+    }
+
+    /**
+     * Deletes the outputs recorded by the previous run whose rows are no longer part of the input.
+     *
+     * @return the names of the deleted files
+     * @throws IOException if a file cannot be deleted
+     */
+    public List<String> prune() throws IOException {
+        List<String> pruned = new ArrayList<>();
+        for (String fileName : new TreeMap<>(previous).keySet()) {
+            if (!seen.contains(fileName)) {
+                Files.deleteIfExists(new File(destination + fileName).toPath());
+                pruned.add(fileName);
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * Replaces the manifest on disk with the files recorded in this run.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    public void save() throws IOException {
+        Path path = new File(destination + manifestName).toPath();
+        Path temp = new File(destination + manifestName + ".tmp").toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, UTF_8)) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(current).entrySet()) {
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(entry.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
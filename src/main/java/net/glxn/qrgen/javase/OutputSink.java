@@ -0,0 +1,19 @@
+package net.glxn.qrgen.javase;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where the generator puts finished labels. Implementations must accept writes from several workers at once.
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * Stores one output.
+     *
+     * @param name the file name of the output, e.g. 1000-0EPL-AGT-EVLIM00001-Machine 001-001.png
+     * @param data the encoded label
+     * @throws IOException if the output cannot be stored
+     */
+    void write(String name, byte[] data) throws IOException;
+}
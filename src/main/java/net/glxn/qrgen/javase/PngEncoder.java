@@ -0,0 +1,303 @@
+package net.glxn.qrgen.javase;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes two colour images as 1-bit PNGs.
+ * <p>
+ * Black and white images are written as 1-bit grayscale, any other pair of colours as a 2-entry palette, which is
+ * a fraction of the RGB data the default ImageIO writer produces for a QR label. Packed two colour images, such as
+ * those of {@link BinaryRaster}, are copied scanline by scanline without expanding them to pixels first. The
+ * deflate level and strategy are configurable. Each thread reuses its own {@link Deflater} and buffers, so an encoder can be shared by all
+ * workers of a batch.
+ * </p>
+ */
+public class PngEncoder {
+
+    public static final PngEncoder DEFAULT = new PngEncoder(6, Deflater.DEFAULT_STRATEGY);
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private final int level;
+    private final int strategy;
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    /**
+     * @param level    the deflate level, 0 to 9
+     * @param strategy one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or
+     *                 {@link Deflater#HUFFMAN_ONLY}
+     */
+    public PngEncoder(int level, int strategy) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("level must be between 0 and 9 but was " + level);
+        }
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("Unknown deflate strategy " + strategy);
+        }
+        this.level = level;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Parses a strategy name as used on the command line.
+     *
+     * @param name default, filtered or huffman
+     * @return the {@link Deflater} strategy
+     */
+    public static int strategy(String name) {
+        switch (name) {
+            case "default":
+                return Deflater.DEFAULT_STRATEGY;
+            case "filtered":
+                return Deflater.FILTERED;
+            case "huffman":
+                return Deflater.HUFFMAN_ONLY;
+            default:
+                throw new IllegalArgumentException("Unknown deflate strategy " + name);
+        }
+    }
+
+    /**
+     * Encodes the image if it has at most two colours.
+     *
+     * @param image the image to encode
+     * @param out   the stream to write the PNG to
+     * @return false, without writing anything, if the image has more than two colours
+     * @throws IOException if writing to the stream fails
+     */
+    public boolean write(BufferedImage image, OutputStream out) throws IOException {
+        return write(image, out, 0);
+    }
+
+    /**
+     * Encodes the image if it has at most two colours, recording its resolution for printing.
+     *
+     * @param image the image to encode
+     * @param out   the stream to write the PNG to
+     * @param dpi   the resolution written to the pHYs chunk, or 0 for none
+     * @return false, without writing anything, if the image has more than two colours
+     * @throws IOException if writing to the stream fails
+     */
+    public boolean write(BufferedImage image, OutputStream out, int dpi) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Buffers b = buffers.get();
+        if (BinaryRaster.isPacked(image)) {
+            writePacked(image, out, b, dpi);
+            return true;
+        }
+        int[] pixels = b.pixels(width * height);
+        image.getRGB(0, 0, width, height, pixels, 0, width);
+
+        int first = pixels[0];
+        int second = first;
+        for (int i = 1; i < width * height; i++) {
+            int pixel = pixels[i];
+            if (pixel != first) {
+                if (second == first) {
+                    second = pixel;
+                } else if (pixel != second) {
+                    return false;
+                }
+            }
+        }
+        boolean gray = (first == BLACK || first == WHITE) && (second == BLACK || second == WHITE);
+        int one = gray ? WHITE : second;
+
+        int stride = (width + 7) / 8;
+        byte[] raw = b.raw((stride + 1) * height);
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            raw[offset++] = 0;
+            int row = y * width;
+            for (int x = 0; x < width; x += 8) {
+                int bits = 0;
+                int end = Math.min(8, width - x);
+                for (int bit = 0; bit < end; bit++) {
+                    if (pixels[row + x + bit] == one) {
+                        bits |= 0x80 >>> bit;
+                    }
+                }
+                raw[offset++] = (byte) bits;
+            }
+        }
+        writeImage(out, b, width, height, gray, first, second, offset, dpi);
+        return true;
+    }
+
+    /**
+     * Copies the packed data of a two colour image into scanlines. A bit is set for pixels of the same colour as
+     * {@link #write} would set it for, so both paths produce the same file.
+     */
+    private void writePacked(BufferedImage image, OutputStream out, Buffers b, int dpi) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int scanline = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        IndexColorModel model = (IndexColorModel) image.getColorModel();
+        int[] colors = {model.getRGB(0), model.getRGB(1)};
+
+        int first = colors[(data[0] >>> 7) & 1];
+        int second = colors[0] == first ? colors[1] : colors[0];
+        boolean gray = (first == BLACK || first == WHITE) && (second == BLACK || second == WHITE);
+        int one = gray ? WHITE : second;
+        int ones = colors[1] == one ? 0xFF : 0;
+        int zeros = colors[0] == one ? 0xFF : 0;
+        int tail = width % 8 == 0 ? 0xFF : 0xFF << (8 - width % 8);
+
+        int stride = (width + 7) / 8;
+        byte[] raw = b.raw((stride + 1) * height);
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            raw[offset++] = 0;
+            int row = y * scanline;
+            for (int i = 0; i < stride; i++) {
+                int bits = data[row + i];
+                raw[offset++] = (byte) ((bits & ones) | (~bits & zeros));
+            }
+            raw[offset - 1] &= tail;
+        }
+        writeImage(out, b, width, height, gray, first, second, offset, dpi);
+    }
+
+    private void writeImage(OutputStream out, Buffers b, int width, int height, boolean gray, int first, int second,
+                            int rawLength, int dpi) throws IOException {
+        byte[] raw = b.raw;
+        out.write(SIGNATURE);
+        byte[] header = b.chunk(13);
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 1;
+        header[9] = (byte) (gray ? 0 : 3);
+        header[10] = 0;
+        header[11] = 0;
+        header[12] = 0;
+        writeChunk(out, b, "IHDR", header, 13);
+        if (!gray) {
+            int[] colors = {first, second};
+            byte[] palette = b.chunk(6);
+            byte[] alpha = new byte[2];
+            boolean transparent = false;
+            for (int i = 0; i < 2; i++) {
+                palette[i * 3] = (byte) (colors[i] >> 16);
+                palette[i * 3 + 1] = (byte) (colors[i] >> 8);
+                palette[i * 3 + 2] = (byte) colors[i];
+                alpha[i] = (byte) (colors[i] >>> 24);
+                transparent |= (colors[i] >>> 24) != 0xFF;
+            }
+            writeChunk(out, b, "PLTE", palette, 6);
+            if (transparent) {
+                writeChunk(out, b, "tRNS", alpha, 2);
+            }
+        }
+        if (dpi > 0) {
+            byte[] physical = b.chunk(9);
+            int perMeter = (int) Math.round(dpi / 0.0254);
+            putInt(physical, 0, perMeter);
+            putInt(physical, 4, perMeter);
+            physical[8] = 1;
+            writeChunk(out, b, "pHYs", physical, 9);
+        }
+
+        Deflater deflater = b.deflater;
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setStrategy(strategy);
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        byte[] compressed = b.compressed;
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = b.growCompressed();
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        writeChunk(out, b, "IDAT", compressed, length);
+        writeChunk(out, b, "IEND", compressed, 0);
+    }
+
+    private static void writeChunk(OutputStream out, Buffers b, String type, byte[] data, int length)
+            throws IOException {
+        byte[] head = b.head;
+        putInt(head, 0, length);
+        for (int i = 0; i < 4; i++) {
+            head[4 + i] = (byte) type.charAt(i);
+        }
+        CRC32 crc = b.crc;
+        crc.reset();
+        crc.update(head, 4, 4);
+        crc.update(data, 0, length);
+        out.write(head, 0, 8);
+        out.write(data, 0, length);
+        putInt(head, 0, (int) crc.getValue());
+        out.write(head, 0, 4);
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    @Override
+    public String toString() {
+        return "png level " + level + " strategy " + strategy;
+    }
+
+    private static class Buffers {
+
+        private final Deflater deflater = new Deflater();
+        private final CRC32 crc = new CRC32();
+        private final byte[] head = new byte[8];
+        private int[] pixels = new int[0];
+        private byte[] raw = new byte[0];
+        private byte[] chunk = new byte[16];
+        private byte[] compressed = new byte[8192];
+
+        int[] pixels(int size) {
+            if (pixels.length < size) {
+                pixels = new int[size];
+            }
+            return pixels;
+        }
+
+        byte[] raw(int size) {
+            if (raw.length < size) {
+                raw = new byte[size];
+            }
+            return raw;
+        }
+
+        byte[] chunk(int size) {
+            if (chunk.length < size) {
+                chunk = new byte[size];
+            }
+            return chunk;
+        }
+
+        byte[] growCompressed() {
+            byte[] grown = new byte[compressed.length * 2];
+            System.arraycopy(compressed, 0, grown, 0, compressed.length);
+            compressed = grown;
+            return compressed;
+        }
+    }
+}
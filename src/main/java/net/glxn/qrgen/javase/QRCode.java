@@ -1,39 +1,51 @@
 package net.glxn.qrgen.javase;
 
+import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
+import com.google.zxing.ReaderException;
 import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageConfig;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.detector.Detector;
+import com.google.zxing.qrcode.encoder.Encoder;
 import net.glxn.qrgen.core.AbstractQRCode;
 import net.glxn.qrgen.core.exception.QRGenerationException;
 import net.glxn.qrgen.core.image.ImageType;
 import net.glxn.qrgen.core.scheme.VCard;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class QRCode extends AbstractQRCode {
 
     public static final MatrixToImageConfig DEFAULT_CONFIG = new MatrixToImageConfig();
 
+    private static final int MAX_VERSION_STEPS = 3;
+
     protected final String text;
     protected MatrixToImageConfig matrixToImageConfig = DEFAULT_CONFIG;
+    protected LabelText label;
+    protected EncodeCache cache;
+    protected PngEncoder pngEncoder = PngEncoder.DEFAULT;
+    protected RunStats stats;
+    protected String encoder = "";
 
-    private String fileName = "/tmp/xxx.txt";
+    private String fileName;
 
     protected QRCode(String text) {
         this.text = text;
@@ -143,15 +155,81 @@ public class QRCode extends AbstractQRCode {
         return this;
     }
 
+    /**
+     * Draws the given label text around the QR code. The label is rendered together with the code into one image,
+     * so {@link #file()} and {@link #stream()} encode it exactly once.
+     *
+     * @param label the label text to draw
+     * @return the current QRCode object
+     */
+    public QRCode withLabel(LabelText label) {
+        this.label = label;
+        return this;
+    }
+
+    /**
+     * Overrides the encoder used for labelled PNG images, see {@link #withLabel(LabelText)}.
+     *
+     * @param pngEncoder the encoder, or null to always use the ImageIO writer
+     * @return the current QRCode object
+     */
+    public QRCode withPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+        return this;
+    }
+
+    /**
+     * Shares encoded matrices and rendered labels with other QRCode objects through the given cache.
+     *
+     * @param cache the cache to look up and store encoded codes in
+     * @return the current QRCode object
+     */
+    public QRCode withCache(EncodeCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Encodes numeric and alphanumeric text with {@link FastQRCodeWriter}, which reuses per version templates.
+     * Without the mask heuristic the code is the same as the default writer produces.
+     *
+     * @param maskHeuristic pick the mask by a cheaper penalty, the code stays valid but may differ
+     * @return the current QRCode object
+     */
+    public QRCode withFastEncoder(boolean maskHeuristic) {
+        qrWriter = new FastQRCodeWriter(0, maskHeuristic);
+        encoder = maskHeuristic ? "fast-heuristic" : "";
+        return this;
+    }
+
+    /**
+     * Pins the QR version instead of using the smallest one the text fits in, by supplying a {@link
+     * com.google.zxing.EncodeHintType#QR_VERSION} hint.
+     *
+     * @param version the version, 1 to 40
+     * @return the current QRCode object
+     */
+    public QRCode withVersion(int version) {
+        return withHint(EncodeHintType.QR_VERSION, version);
+    }
+
+    /**
+     * Records the time spent encoding, rasterizing, drawing the label and PNG encoding into the given stats.
+     *
+     * @param stats the stats of the run
+     * @return the current QRCode object
+     */
+    public QRCode withStats(RunStats stats) {
+        this.stats = stats;
+        return this;
+    }
+
     @Override
     public File file() {
         File file;
         try {
-            //file = createTempFile();
-            //SimpleDateFormat formatter = new SimpleDateFormat("ddMMyyyyhhmmss");
-            file = new File(this.fileName);
-            System.out.println("Temp file : " + file.getAbsolutePath());
-            MatrixToImageWriter.writeToPath(createMatrix(text), imageType.toString(), file.toPath(), matrixToImageConfig);
+            file = fileName == null ? createTempFile() : new File(fileName);
+            writeToPath(file.toPath());
         } catch (Exception e) {
             throw new QRGenerationException("Failed to create QR image from text due to underlying exception", e);
         }
@@ -164,7 +242,7 @@ public class QRCode extends AbstractQRCode {
         File file;
         try {
             file = createTempFile(name);
-            MatrixToImageWriter.writeToPath(createMatrix(text), imageType.toString(), file.toPath(), matrixToImageConfig);
+            writeToPath(file.toPath());
         } catch (Exception e) {
             throw new QRGenerationException("Failed to create QR image from text due to underlying exception", e);
         }
@@ -174,7 +252,220 @@ public class QRCode extends AbstractQRCode {
 
     @Override
     protected void writeToStream(OutputStream stream) throws IOException, WriterException {
-        MatrixToImageWriter.writeToStream(createMatrix(text), imageType.toString(), stream, matrixToImageConfig);
+        if (label == null) {
+            MatrixToImageWriter.writeToStream(createMatrix(text), imageType.toString(), stream, matrixToImageConfig);
+        } else if (cache == null) {
+            writeLabel(stream);
+        } else {
+            EncodeCache.ImageKey key = new EncodeCache.ImageKey(matrixKey(), imageType,
+                    matrixToImageConfig.getPixelOnColor(), matrixToImageConfig.getPixelOffColor(),
+                    label.getType(), label.getCode(), label.getName(), LabelRenderer.VERSION, String.valueOf(pngEncoder));
+            byte[] image = cache.getImage(key);
+            if (image == null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                writeLabel(buffer);
+                image = buffer.toByteArray();
+                cache.putImage(key, image);
+            }
+            stream.write(image);
+        }
+    }
+
+    @Override
+    protected BitMatrix createMatrix(String text) throws WriterException {
+        if (cache == null) {
+            return encode(text);
+        }
+        EncodeCache.MatrixKey key = matrixKey();
+        BitMatrix matrix = cache.getMatrix(key);
+        if (matrix == null) {
+            matrix = encode(text);
+            cache.putMatrix(key, matrix);
+        }
+        return matrix;
+    }
+
+    /**
+     * Encodes the code, inside the text band of the label when a label is set, see {@link LabelRenderer}.
+     */
+    private BitMatrix encode(String text) throws WriterException {
+        long start = System.nanoTime();
+        int band = label == null ? 0 : LabelRenderer.textBand(width, height);
+        BitMatrix matrix = band == 0 ? super.createMatrix(text) : encodeLabelled(text, band);
+        if (stats != null) {
+            stats.record(Stage.CREATE_MATRIX, start);
+        }
+        return matrix;
+    }
+
+    /**
+     * Encodes a labelled code and makes sure the ZXing detector finds it. Some codes hold a finder-like pattern in
+     * their data that the detector confirms before it reaches the real bottom-left finder, so it gives up on the
+     * label; such a code is encoded again at the next versions, unless the version is pinned.
+     */
+    private BitMatrix encodeLabelled(String text, int band) throws WriterException {
+        int codeWidth = width - 2 * band;
+        int codeHeight = height - 2 * band;
+        BitMatrix matrix = LabelRenderer.inset(
+                qrWriter.encode(text, BarcodeFormat.QR_CODE, codeWidth, codeHeight, hints), band);
+        if (hints.containsKey(EncodeHintType.QR_VERSION) || isFindable(matrix)) {
+            return matrix;
+        }
+        ErrorCorrectionLevel level = hints.containsKey(EncodeHintType.ERROR_CORRECTION)
+                ? ErrorCorrectionLevel.valueOf(hints.get(EncodeHintType.ERROR_CORRECTION).toString())
+                : ErrorCorrectionLevel.L;
+        int version = Encoder.encode(text, level, hints).getVersion().getVersionNumber();
+        Map<EncodeHintType, Object> pinned = new HashMap<>(hints);
+        for (int next = version + 1; next <= Math.min(40, version + MAX_VERSION_STEPS); next++) {
+            pinned.put(EncodeHintType.QR_VERSION, next);
+            BitMatrix retry = LabelRenderer.inset(
+                    qrWriter.encode(text, BarcodeFormat.QR_CODE, codeWidth, codeHeight, pinned), band);
+            if (isFindable(retry)) {
+                return retry;
+            }
+        }
+        return matrix;
+    }
+
+    private static boolean isFindable(BitMatrix matrix) {
+        try {
+            new Detector(matrix).detect();
+            return true;
+        } catch (ReaderException e) {
+            return false;
+        }
+    }
+
+    private EncodeCache.MatrixKey matrixKey() {
+        return new EncodeCache.MatrixKey(text, width, height, hints, label == null ? encoder : encoder + " labelled");
+    }
+
+    private void writeLabel(OutputStream stream) throws IOException, WriterException {
+        BufferedImage image = renderLabel();
+        long start = System.nanoTime();
+        if (imageType == ImageType.PNG && pngEncoder != null && pngEncoder.write(image, stream)) {
+            // written as a 1-bit PNG
+        } else if (!ImageIO.write(image, imageType.toString(), stream)) {
+            throw new IOException("Could not write an image of format " + imageType);
+        }
+        if (stats != null) {
+            stats.record(Stage.PNG_ENCODE, start);
+        }
+    }
+
+    private void writeToPath(Path path) throws IOException, WriterException {
+        if (label == null) {
+            MatrixToImageWriter.writeToPath(createMatrix(text), imageType.toString(), path, matrixToImageConfig);
+        } else {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                writeToStream(out);
+            }
+        }
+    }
+
+    /**
+     * Renders the code and its label, which must be set, into a new image the caller may keep, packed 1-bit when
+     * the code is drawn in black.
+     *
+     * @return the rendered label
+     */
+    public BufferedImage image() {
+        if (label == null) {
+            throw new IllegalStateException("image() needs a label, see withLabel");
+        }
+        try {
+            return renderLabel(false, true);
+        } catch (WriterException e) {
+            throw new QRGenerationException("Failed to create QR image from text due to underlying exception", e);
+        }
+    }
+
+    private BufferedImage renderLabel() throws WriterException {
+        // the pooled image is encoded by writeLabel on this thread before the next label reuses it
+        return renderLabel(imageType == ImageType.PNG && pngEncoder != null, false);
+    }
+
+    private BufferedImage renderLabel(boolean pooled, boolean binary) throws WriterException {
+        BitMatrix matrix = createMatrix(text);
+        LabelRenderer renderer = new LabelRenderer(matrixToImageConfig);
+        long start = System.nanoTime();
+        BufferedImage image;
+        if (pooled && renderer.isPoolable()) {
+            image = renderer.rasterizePooled(matrix);
+        } else if (binary && renderer.isPoolable()) {
+            image = renderer.rasterizeBinary(matrix);
+        } else {
+            image = renderer.rasterize(matrix);
+        }
+        if (stats != null) {
+            stats.record(Stage.RASTERIZE, start);
+            start = System.nanoTime();
+        }
+        renderer.drawLabel(image, label);
+        if (stats != null) {
+            stats.record(Stage.LABEL_DRAW, start);
+        }
+        return image;
+    }
+
+    /**
+     * Writes the code, and its label when one is set, as SVG to a temporary file, see {@link SvgRenderer}.
+     *
+     * @return the written file
+     */
+    public File svg() {
+        try {
+            return svg(createTempSvgFile());
+        } catch (IOException e) {
+            throw new QRGenerationException("Failed to create QR svg from text due to underlying exception", e);
+        }
+    }
+
+    /**
+     * Writes the code as SVG to a temporary file with the given name prefix.
+     *
+     * @param name the prefix of the file name
+     * @return the written file
+     */
+    public File svg(String name) {
+        try {
+            return svg(createTempSvgFile(name));
+        } catch (IOException e) {
+            throw new QRGenerationException("Failed to create QR svg from text due to underlying exception", e);
+        }
+    }
+
+    /**
+     * Writes the code as SVG to the given stream, which is left open.
+     *
+     * @param stream the stream to write to
+     */
+    public void svg(OutputStream stream) {
+        try {
+            writeSvg(stream);
+        } catch (Exception e) {
+            throw new QRGenerationException("Failed to create QR svg from text due to underlying exception", e);
+        }
+    }
+
+    private File svg(File file) {
+        try (OutputStream out = new FileOutputStream(file)) {
+            writeSvg(out);
+        } catch (Exception e) {
+            throw new QRGenerationException("Failed to create QR svg from text due to underlying exception", e);
+        }
+        return file;
+    }
+
+    private void writeSvg(OutputStream stream) throws IOException, WriterException {
+        BitMatrix matrix = createMatrix(text);
+        long start = System.nanoTime();
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream, Charset.forName("UTF-8")));
+        new SvgRenderer(matrixToImageConfig).write(matrix, label, out);
+        out.flush();
+        if (stats != null) {
+            stats.record(Stage.SVG_WRITE, start);
+        }
     }
 
     private File createTempSvgFile() throws IOException {
@@ -192,181 +483,262 @@ public class QRCode extends AbstractQRCode {
         return this;
     }
 
+    /**
+     * Reads all rows of a text file with one row per line into memory. Use {@link RowSources} to stream large inputs.
+     *
+     * @param fileName the UTF-8 text file
+     * @return the rows, blank lines are skipped
+     * @throws QRGenerationException if the file cannot be read
+     */
     public static List<String> readFile(String fileName) {
         List<String> result = new ArrayList<>();
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(fileName));
-
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                //System.out.println(line);
-                result.add(line);
+        try (RowSource rows = RowSources.open(fileName, new GeneratorOptions().withInputFormat(RowSources.TEXT), null)) {
+            while (rows.hasNext()) {
+                result.add(rows.next());
             }
-
-            br.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (IOException e) {
+            throw new QRGenerationException("Failed to read rows from " + fileName, e);
         }
-
         return result;
     }
 
+    /**
+     * Reads all rows of all sheets into memory. Use {@link XlsxRowReader} to stream large workbooks.
+     *
+     * @param fileName the xlsx file
+     * @return the joined rows, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001
+     * @throws QRGenerationException if the workbook cannot be read
+     */
     public static List<String> readExcelFile(String fileName) {
         List<String> result = new ArrayList<>();
+        try (XlsxRowReader rows = new XlsxRowReader(fileName)) {
+            while (rows.hasNext()) {
+                result.add(rows.next());
+            }
+        }
+        return result;
+    }
 
-        try {
-            FileInputStream file = new FileInputStream(new File(fileName));
-
-            //Create Workbook instance holding reference to .xlsx file
-            XSSFWorkbook workbook = new XSSFWorkbook(file);
-
-            //Get first/desired sheet from the workbook
-            XSSFSheet sheet = workbook.getSheetAt(0);
-
-            //Iterate through each rows one by one
-            Iterator<Row> rowIterator = sheet.iterator();
-            while (rowIterator.hasNext()) {
-
-                Row row = rowIterator.next();
-                Iterator<Cell> cellIterator = row.cellIterator();
-                StringBuffer sb = new StringBuffer();
-
-                if (fileName.indexOf("EQListfo") >= 0) {
-                    sb.append("EQ/");
-                } else if (fileName.indexOf("FLListfo") >= 0) {
-                    sb.append("FL/");
-                } else {
-                }
-
-                int colCheck = 1;
-
-                while (cellIterator.hasNext()) {
-
-                    Cell cell = cellIterator.next();
-                    switch (cell.getCellType()) {
-                        case Cell.CELL_TYPE_NUMERIC:
-                            //System.out.print(cell.getNumericCellValue());
-                            sb.append("" + cell.getNumericCellValue());
-                            break;
-                        case Cell.CELL_TYPE_STRING:
-                            //System.out.print(cell.getStringCellValue());
-                            sb.append("" + cell.getStringCellValue());
-                            break;
-                    }
 
-                    if(colCheck==4){
-                        sb.append(",");
-                    }else if(colCheck<=3){
-                        sb.append("/");
-                    }
-                    colCheck++;
-                }
-                if (sb.toString().indexOf("Description") < 0) {
-                    String ret = sb.toString().replace(".0", "");
-//                    ret = ret.substring(0, ret.lastIndexOf("/"));
-//                    ret = ret.substring(0, ret.lastIndexOf("/")) + "," + ret.split("/")[ret.split("/").length - 1];
-                    System.out.println(ret);
-                    result.add(ret);
-                }
+    /**
+     * Renders one row, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001, as a 400x400 labelled PNG
+     * in the destination. Safe to call from several threads at once.
+     *
+     * @param text        the row text, the part before the comma is encoded
+     * @param destination the prefix the file name is appended to
+     * @return the written file
+     * @throws IOException if the file cannot be written
+     */
+    static File generateLabel(String text, String destination) throws IOException {
+        LabelJob job = LabelJob.parse(text);
+        DirectorySink sink = new DirectorySink(destination);
+        RenderOptions render = new RenderOptions();
+        sink.write(job.getFileName(render), job.render(render, null, null));
+        return sink.file(job.getFileName(render));
+    }
 
-            }
-            file.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Prints the summary line of a batch followed by its failed rows, write errors and verify problems.
+     */
+    static void printReport(PrintStream out, BatchReport report, GeneratorOptions options) {
+        if (options.isVirtualThreads() && !report.isVirtualThreads()) {
+            out.println("Virtual threads are not supported by this JVM, used platform threads");
+        }
+        out.println("Size :" + report.getRows() + " Generated :" + report.getGenerated()
+                + " Unchanged :" + report.getSkipped()
+                + (options.isResume() ? " Resumed :" + report.getResumed() : "") + " Pruned :" + report.getPruned().size()
+                + " Failed :" + report.getFailures().size()
+                + (options.getShard() != null ? " Other shards :" + report.getOtherShards() : "")
+                + (report.getWriteErrors().isEmpty() ? "" : " Write errors :" + report.getWriteErrors().size())
+                + (options.getVerifyRate() > 0 ? " Verified :" + report.getVerified()
+                + " Verify problems :" + report.getVerifyFailures().size() : ""));
+        for (BatchReport.Failure failure : report.getFailures()) {
+            out.println("Row " + failure.getRow() + " :" + failure.getCause().getMessage());
+        }
+        for (BatchReport.WriteError error : report.getWriteErrors()) {
+            out.println("Write " + error.getName() + " :" + error.getCause());
+        }
+        for (BatchReport.VerifyFailure failure : report.getVerifyFailures()) {
+            out.println("Verify row " + failure.getRow() + " " + failure.getName() + " :" + failure.getProblem());
+        }
+        if (report.getCache() != null) {
+            out.println("Cache " + report.getCache());
         }
+    }
 
+    private static void printUsage() {
+        System.out.println("Usage : java -jar GENQR.jar QR [EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001] [destination]");
+        System.out.println("Usage : java -jar GENQR.jar FILE [list-of-fl-eq-file|-] [destination] [options]");
+        System.out.println("Usage : java -jar GENQR.jar SERVER [port] [options]");
+        System.out.println("Usage : java -jar GENQR.jar MERGE [list-of-fl-eq-file|-] [shard-destination...] [options]");
+        System.out.println("Usage : java -jar GENQR.jar WATCH [list-directory] [destination] [options]");
+    }
 
-        return result;
+    /**
+     * @return the reason a list could not be read, the cause of a reader failure rather than its wrapper
+     */
+    private static String readFailure(RuntimeException e) {
+        return e instanceof QRGenerationException && e.getCause() != null ? e.getCause().toString() : e.getMessage();
     }
 
+    /**
+     * Prints why the command line was rejected and the usage, then exits with status 1.
+     */
+    private static void exitWithUsage(String message) {
+        System.out.println(message);
+        printUsage();
+        System.exit(1);
+    }
 
     public static void main(String args[]) {
 
         if (args.length < 2) {
-            System.out.println("Usage : java -jar GENQR.jar QR [EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001] [destination]");
-            System.out.println("Usage : java -jar GENQR.jar FILE [list-of-fl-eq-file] [destination]");
+            printUsage();
         } else {
             if("QR".equalsIgnoreCase(args[0])){
-                String text = "";
-                String file = "";
+                String text = args[1];
                 try {
-
-                        text = args[1];
-                        file = text.split("/")[2]+"-"+text.split("/")[3]+text.split("/")[4].split(",")[0]+"-"+text.split("/")[4].split(",")[1];
-                        //file = createTempFile();
-                        System.out.println("file name :" + file);
-                        String fileName = args[2] + file + ".png";
-                        QRCode.from(text.split(",")[0], fileName).withSize(400, 400).file();
-                        try {
-                            BufferedImage image = ImageIO.read(new File(fileName));
-                            Graphics g = image.getGraphics();
-                            g.setColor(Color.BLACK);
-                            g.setFont(new Font("Arial", Font.BOLD, 12));
-                            Font font = g.getFont();
-                            font.deriveFont(30f);
-
-                            g.setFont(font);
-                            g.drawString(text.split("/")[0], 20, 200);
-                            g.drawString(text.split(",")[0], 50, 365);
-                            g.setFont(new Font("TH SarabunPSK", Font.BOLD, 20));
-                            g.drawString(text.split(",")[1], 50, 385);
-
-                            g.dispose();
-                            ImageIO.write(image, "png", new File(fileName));
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
+                    File file = generateLabel(text, args[2]);
+                    System.out.println("file name :" + file.getName());
                 } catch (Exception e) {
-                    System.out.print("error machine :"+text);
+                    System.out.println("error machine :"+text);
                 }
 
             }else if("FILE".equalsIgnoreCase(args[0])){
-                List<String> FLEQlist = QRCode.readExcelFile(args[1]);//QRCode.readFile("/Users/nancom/Workspace/QRGen/javase/fl-eq-plant.txt");
-                System.out.println("Size :" + FLEQlist.size());
-                for (String buffer : FLEQlist) {
-                    String text = "";
-                    String file = "";
-                    try {
-                        System.out.println("code :" + buffer);
-
-                        if (buffer.length() > 0) {
-                            text = buffer;//"EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001";
-                            file = text.split("/")[2]+"-"+text.split("/")[3]+text.split("/")[4].split(",")[0]+"-"+text.split("/")[4].split(",")[1];
-                            //file = createTempFile();
-                            System.out.println("file name :" + text.split("/")[4].split(",")[0]);
-                            String fileName = args[2] + file + ".png";//"/Users/nancom/Temp/"+file+".png";
-                            QRCode.from(text.split(",")[0], fileName).withSize(400, 400).file();
+                GeneratorOptions options;
+                try {
+                    options = GeneratorOptions.parse(args, 3);
+                } catch (IllegalArgumentException e) {
+                    exitWithUsage(e.getMessage());
+                    return;
+                }
+                RunStats stats = new RunStats();
+                RowSource rows;
+                try {
+                    rows = RowSources.open(args[1], options, stats);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.out.println("Failed to read " + args[1] + " :" + e.getMessage());
+                    System.exit(1);
+                    return;
+                }
+                boolean unreadable = false;
+                try (OutputSink sink = options.isZip() ? new ZipSink(new File(args[2])) : new DirectorySink(args[2])) {
+                    BatchReport report = new BatchGenerator(sink, options,
+                            new ConsoleListener(System.out, options.isQuiet())).run(rows, stats);
+                    System.out.println();
+                    printReport(System.out, report, options);
+                    System.out.print(stats);
+                    if (options.getStatsFile() != null) {
+                        try (Writer out = Files.newBufferedWriter(Paths.get(options.getStatsFile()), Charset.forName("UTF-8"))) {
+                            stats.writeJson(out);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    System.out.println("Failed to write " + args[2] + " :" + e.getMessage());
+                } catch (QRGenerationException e) {
+                    System.out.println("Failed to read " + args[1] + " :" + readFailure(e));
+                    unreadable = true;
+                } finally {
+                    rows.close();
+                }
+                if (unreadable) {
+                    System.exit(1);
+                }
+            }else if("SERVER".equalsIgnoreCase(args[0])){
+                int port;
+                try {
+                    port = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    exitWithUsage("SERVER expects a port number but was " + args[1]);
+                    return;
+                }
+                try {
+                    final LabelServer server = new LabelServer(port, GeneratorOptions.parse(args, 2));
+                    server.start();
+                    Runtime.getRuntime().addShutdownHook(new Thread() {
+                        @Override
+                        public void run() {
+                            server.stop(1);
+                        }
+                    });
+                    System.out.println("Listening on 127.0.0.1:" + server.getPort());
+                } catch (IllegalArgumentException e) {
+                    exitWithUsage(e.getMessage());
+                } catch (IOException e) {
+                    System.out.println("Failed to start server :" + e.getMessage());
+                }
+            }else if("MERGE".equalsIgnoreCase(args[0])){
+                int from = 2;
+                while (from < args.length && !args[from].startsWith("--")) {
+                    from++;
+                }
+                GeneratorOptions options;
+                try {
+                    options = GeneratorOptions.parse(args, from);
+                } catch (IllegalArgumentException e) {
+                    exitWithUsage(e.getMessage());
+                    return;
+                }
+                ShardMerge merge = new ShardMerge();
+                List<String> problems;
+                try {
+                    for (int i = 2; i < from; i++) {
+                        if (merge.load(args[i]) == 0) {
+                            System.out.println("No shard records in " + args[i]);
+                        }
+                    }
+                    try (RowSource rows = RowSources.open(args[1], options, new RunStats())) {
+                        problems = merge.check(rows);
+                    }
+                } catch (IOException e) {
+                    System.out.println("Failed to merge shards :" + e.getMessage());
+                    System.exit(1);
+                    return;
+                } catch (QRGenerationException | IllegalArgumentException e) {
+                    System.out.println("Failed to read " + args[1] + " :" + readFailure(e));
+                    System.exit(1);
+                    return;
+                }
+                for (String summary : merge.getSummaries()) {
+                    System.out.println(summary);
+                }
+                for (String problem : problems) {
+                    System.out.println(problem);
+                }
+                if (!problems.isEmpty()) {
+                    System.out.println("Coverage incomplete :" + problems.size() + " problems");
+                    System.exit(1);
+                }
+                System.out.println("Coverage complete");
+            }else if("WATCH".equalsIgnoreCase(args[0]) && args.length > 2){
+                try {
+                    final ListWatcher watcher = new ListWatcher(args[1], args[2], GeneratorOptions.parse(args, 3),
+                            System.out);
+                    final Thread runner = Thread.currentThread();
+                    Runtime.getRuntime().addShutdownHook(new Thread() {
+                        @Override
+                        public void run() {
                             try {
-                                BufferedImage image = ImageIO.read(new File(fileName));
-                                Graphics g = image.getGraphics();
-                                g.setColor(Color.BLACK);
-                                g.setFont(new Font("Arial", Font.BOLD, 12));
-                                Font font = g.getFont();
-                                font.deriveFont(30f);
-
-                                g.setFont(font);
-                                g.drawString(text.split("/")[0], 20, 200);
-                                g.drawString(text.split(",")[0], 50, 365);
-                                g.setFont(new Font("TH SarabunPSK", Font.BOLD, 20));
-                                try {
-                                    g.drawString(text.split(",")[1], 50, 385);
-                                }catch(Exception e){
-                                    System.out.print("no machine name :"+text);
-                                }
-                                g.dispose();
-                                ImageIO.write(image, "png", new File(fileName));
-                            } catch (Exception e) {
-                                e.printStackTrace();
+                                watcher.close();
+                                runner.join();
+                            } catch (IOException | InterruptedException e) {
+                                // exiting anyway
                             }
                         }
-                    } catch (Exception e) {
-                        System.out.print("error machine :"+text);
-                    }
-
+                    });
+                    System.out.println("Watching " + args[1]);
+                    watcher.run();
+                } catch (IllegalArgumentException e) {
+                    exitWithUsage(e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    System.out.println("Failed to watch " + args[1] + " :" + e.getMessage());
                 }
             }else{
-                System.out.println("Usage : java -jar GENQR.jar QR [EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001] [destination]");
-                System.out.println("Usage : java -jar GENQR.jar FILE [list-of-fl-eq-file] [destination]");
+                printUsage();
             }
 
         }
@@ -0,0 +1,107 @@
+package net.glxn.qrgen.javase;
+
+import net.glxn.qrgen.core.exception.QRGenerationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * Base of the character based sources: rows are read from a {@link Reader} one at a time as the consumer asks for
+ * them and the reader is closed once it is exhausted. A byte order mark at the start of the input is skipped.
+ */
+abstract class ReaderRowSource implements RowSource {
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final BufferedReader reader;
+    private final String name;
+    private final RunStats stats;
+    private boolean started;
+    private boolean done;
+    private String next;
+
+    ReaderRowSource(Reader reader, String name, RunStats stats) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.name = name;
+        this.stats = stats;
+    }
+
+    /**
+     * @return the next row, or null once the input is exhausted
+     * @throws IOException if the input cannot be read
+     */
+    protected abstract String readRow() throws IOException;
+
+    /**
+     * @return the next character, or -1 at the end of the input
+     */
+    protected int read() throws IOException {
+        int c = reader.read();
+        if (!started) {
+            started = true;
+            if (c == BYTE_ORDER_MARK) {
+                c = reader.read();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return the next line, or null at the end of the input
+     */
+    protected String readLine() throws IOException {
+        if (!started) {
+            started = true;
+            reader.mark(1);
+            if (reader.read() != BYTE_ORDER_MARK) {
+                reader.reset();
+            }
+        }
+        return reader.readLine();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            long start = System.nanoTime();
+            try {
+                next = readRow();
+            } catch (IOException e) {
+                throw new QRGenerationException("Failed to read rows from " + name, e);
+            }
+            if (next == null) {
+                done = true;
+                close();
+            } else if (stats != null) {
+                stats.record(Stage.ROW_READ, start);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // nothing is written, so there is nothing to lose
+        }
+    }
+}
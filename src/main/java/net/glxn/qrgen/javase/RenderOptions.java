@@ -0,0 +1,120 @@
+package net.glxn.qrgen.javase;
+
+import java.util.Locale;
+
+/**
+ * How the labels of a batch are rendered and encoded.
+ */
+public class RenderOptions {
+
+    /**
+     * The file format of the labels.
+     */
+    public enum Format {
+        PNG, SVG;
+
+        /**
+         * @return the file name extension, e.g. .png
+         */
+        public String getExtension() {
+            return "." + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private int size = 400;
+    private Format format = Format.PNG;
+    private boolean fastEncoder;
+    private boolean maskHeuristic;
+    private int version;
+    private PngEncoder pngEncoder = PngEncoder.DEFAULT;
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @param size the width and height of a label in pixels
+     * @return the current options
+     */
+    public RenderOptions withSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive but was " + size);
+        }
+        this.size = size;
+        return this;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @param format the file format of the labels
+     * @return the current options
+     */
+    public RenderOptions withFormat(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    public boolean isFastEncoder() {
+        return fastEncoder;
+    }
+
+    public boolean isMaskHeuristic() {
+        return maskHeuristic;
+    }
+
+    /**
+     * @param fastEncoder   encode with {@link FastQRCodeWriter}
+     * @param maskHeuristic let it pick the mask by a cheaper penalty, see {@link QRCode#withFastEncoder(boolean)}
+     * @return the current options
+     */
+    public RenderOptions withFastEncoder(boolean fastEncoder, boolean maskHeuristic) {
+        this.fastEncoder = fastEncoder;
+        this.maskHeuristic = fastEncoder && maskHeuristic;
+        return this;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the QR version to pin, 1 to 40, or 0 for the smallest that fits
+     * @return the current options
+     */
+    public RenderOptions withVersion(int version) {
+        if (version < 0 || version > 40) {
+            throw new IllegalArgumentException("version must be between 1 and 40, or 0 for any, but was " + version);
+        }
+        this.version = version;
+        return this;
+    }
+
+    public PngEncoder getPngEncoder() {
+        return pngEncoder;
+    }
+
+    /**
+     * @param pngEncoder the encoder for PNG labels
+     * @return the current options
+     */
+    public RenderOptions withPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+        return this;
+    }
+
+    /**
+     * @return a description of every setting that changes the rendered bytes, used in the incremental manifest. The
+     * fast encoder without the mask heuristic encodes the same codes, so it is left out.
+     */
+    @Override
+    public String toString() {
+        String code = (version > 0 ? " v" + version : "") + (maskHeuristic ? " heuristic-mask" : "");
+        if (format == Format.SVG) {
+            return size + "x" + size + code + " svg layout " + LabelRenderer.VERSION;
+        }
+        return size + "x" + size + code + " " + pngEncoder + " layout " + LabelRenderer.VERSION;
+    }
+}
@@ -0,0 +1,51 @@
+package net.glxn.qrgen.javase;
+
+/**
+ * Joins the cells of a spreadsheet row into row text: the first three cells are followed by "/", the fourth by ","
+ * and the rest are appended as is, all behind the EQ/ or FL/ prefix.
+ */
+class RowBuilder {
+
+    private final String prefix;
+    private final StringBuilder row = new StringBuilder();
+    private int column;
+
+    RowBuilder(String prefix) {
+        this.prefix = prefix;
+    }
+
+    void start() {
+        row.setLength(0);
+        row.append(prefix);
+        column = 1;
+    }
+
+    StringBuilder text() {
+        return row;
+    }
+
+    /**
+     * Ends the current cell, its text must have been appended to {@link #text()}.
+     */
+    void endCell() {
+        if (column == 4) {
+            row.append(",");
+        } else if (column <= 3) {
+            row.append("/");
+        }
+        column++;
+    }
+
+    void cell(CharSequence value) {
+        row.append(value);
+        endCell();
+    }
+
+    /**
+     * @return the row text, or null for a header row
+     */
+    String finish() {
+        String text = row.toString();
+        return text.indexOf("Description") < 0 ? text : null;
+    }
+}
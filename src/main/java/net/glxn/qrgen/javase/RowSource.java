@@ -0,0 +1,17 @@
+package net.glxn.qrgen.javase;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * A lazily read list of rows such as EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001. Rows are read as they are
+ * asked for, so an input of any size streams through the generator. See {@link RowSources} for the formats.
+ */
+public interface RowSource extends Iterator<String>, Closeable {
+
+    /**
+     * Stops reading, rows that have not been read yet are discarded.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,83 @@
+package net.glxn.qrgen.javase;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Opens the input of a FILE run as a {@link RowSource}. The format follows from the file name unless it is given:
+ * <ul>
+ * <li><code>xlsx</code>: the sheets of a workbook, see {@link XlsxRowReader}</li>
+ * <li><code>csv</code> and <code>tsv</code>: the same columns as a workbook, comma or tab separated</li>
+ * <li><code>text</code>: one complete row per line; also used for <code>-</code>, which reads standard input</li>
+ * </ul>
+ */
+public class RowSources {
+
+    public static final String XLSX = "xlsx";
+    public static final String CSV = "csv";
+    public static final String TSV = "tsv";
+    public static final String TEXT = "text";
+    public static final String STDIN = "-";
+
+    private RowSources() {
+    }
+
+    /**
+     * @param input   the input file, or <code>-</code> for standard input
+     * @param options the input format, type prefix, sheet and charset to use
+     * @param stats   the stats to record {@link Stage#ROW_READ} in, may be null
+     * @return the rows of the input, read as they are asked for
+     * @throws IOException if the input cannot be opened
+     */
+    public static RowSource open(String input, GeneratorOptions options, RunStats stats) throws IOException {
+        String format = options.getInputFormat() != null ? options.getInputFormat() : format(input);
+        String prefix = options.getType() != null ? options.getType() + "/" : prefix(input);
+        Charset charset = options.getCharset();
+        switch (format) {
+            case XLSX:
+                return new XlsxRowReader(input, prefix, options.getSheet(), stats);
+            case CSV:
+                return new DelimitedRowReader(reader(input, charset), ',', prefix, input, stats);
+            case TSV:
+                return new DelimitedRowReader(reader(input, charset), '\t', prefix, input, stats);
+            case TEXT:
+                return new TextRowReader(reader(input, charset), input, stats);
+            default:
+                throw new IllegalArgumentException("Unknown input format " + format);
+        }
+    }
+
+    static String format(String input) {
+        String name = input.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xlsx") || name.endsWith(".xlsm")) {
+            return XLSX;
+        } else if (name.endsWith(".csv")) {
+            return CSV;
+        } else if (name.endsWith(".tsv") || name.endsWith(".tab")) {
+            return TSV;
+        }
+        return TEXT;
+    }
+
+    /**
+     * @param fileName the input file
+     * @return EQ/ or FL/ for the equipment and functional location lists, judged by the file name
+     */
+    static String prefix(String fileName) {
+        if (fileName.indexOf("EQListfo") >= 0) {
+            return "EQ/";
+        } else if (fileName.indexOf("FLListfo") >= 0) {
+            return "FL/";
+        }
+        return "";
+    }
+
+    private static InputStreamReader reader(String input, Charset charset) throws IOException {
+        InputStream in = STDIN.equals(input) ? System.in : new FileInputStream(input);
+        return new InputStreamReader(in, charset);
+    }
+}
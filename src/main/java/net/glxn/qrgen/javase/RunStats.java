@@ -0,0 +1,202 @@
+package net.glxn.qrgen.javase;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-stage timings of a run, recorded by all workers at once.
+ * <p>
+ * Every {@link Stage} has a lock-free log-linear histogram with eight buckets per power of two, so percentiles
+ * are accurate to about 12% and recording is two atomic increments. When the JVM has Flight Recorder, every
+ * recording is also emitted as a <code>net.glxn.qrgen.Stage</code> event while that event is enabled.
+ * </p>
+ */
+public class RunStats {
+
+    private static final boolean JFR = jfrAvailable();
+
+    private final Histogram[] histograms = new Histogram[Stage.values().length];
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong labels = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    public RunStats() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the time since <code>startNanos</code> for the stage.
+     *
+     * @param stage      the stage that finished
+     * @param startNanos the {@link System#nanoTime()} the stage started at
+     */
+    public void record(Stage stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        histograms[stage.ordinal()].record(nanos);
+        if (JFR) {
+            StageEvent.emit(stage, nanos);
+        }
+    }
+
+    /**
+     * Records a label handed to the sink.
+     *
+     * @param bytes the size of the encoded label
+     */
+    public void recordOutput(long bytes) {
+        labels.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Records output that is not a label of its own, such as a print sheet holding labels already recorded.
+     *
+     * @param bytes the size of the output
+     */
+    public void recordBytes(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Marks the end of the run, the wall clock time used for throughput.
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getCount(Stage stage) {
+        return histograms[stage.ordinal()].count.get();
+    }
+
+    /**
+     * @param stage      the stage
+     * @param percentile between 0 and 100
+     * @return the approximate duration in nanoseconds below which the given percentage of recordings fall
+     */
+    public long getPercentile(Stage stage, double percentile) {
+        return histograms[stage.ordinal()].percentile(percentile);
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getLabels() {
+        return labels.get();
+    }
+
+    public double getSeconds() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1e9;
+    }
+
+    /**
+     * @return labels per second of wall clock time
+     */
+    public double getThroughput() {
+        double seconds = getSeconds();
+        return seconds == 0 ? 0 : labels.get() / seconds;
+    }
+
+    /**
+     * Writes the summary as a JSON object.
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n");
+        out.write(String.format(Locale.ROOT, "  \"seconds\": %.3f,%n", getSeconds()));
+        out.write("  \"labels\": " + labels.get() + ",\n");
+        out.write(String.format(Locale.ROOT, "  \"labelsPerSecond\": %.1f,%n", getThroughput()));
+        out.write("  \"bytesWritten\": " + bytesWritten.get() + ",\n");
+        out.write("  \"stages\": {\n");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            Histogram h = histograms[i];
+            out.write("    \"" + stages[i].name() + "\": {\"count\": " + h.count.get()
+                    + ", \"totalMillis\": " + h.total.get() / 1000000
+                    + ", \"p50Micros\": " + h.percentile(50) / 1000
+                    + ", \"p99Micros\": " + h.percentile(99) / 1000 + "}"
+                    + (i < stages.length - 1 ? ",\n" : "\n"));
+        }
+        out.write("  }\n}\n");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%d labels in %.1fs, %.1f labels/s, %d bytes written%n",
+                labels.get(), getSeconds(), getThroughput(), bytesWritten.get()));
+        for (Stage stage : Stage.values()) {
+            Histogram h = histograms[stage.ordinal()];
+            if (h.count.get() > 0) {
+                sb.append(String.format(Locale.ROOT, "%-14s count %8d  p50 %8dus  p99 %8dus%n",
+                        stage, h.count.get(), h.percentile(50) / 1000, h.percentile(99) / 1000));
+            }
+        }
+        return sb.toString();
+    }
+
+    static class Histogram {
+
+        private static final int SUB_BUCKETS = 8;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(SUB_BUCKETS + 60 * SUB_BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(index(value));
+            count.incrementAndGet();
+            total.addAndGet(value);
+        }
+
+        static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (exponent - 3) * SUB_BUCKETS + sub;
+        }
+
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + 3;
+            int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+        }
+
+        long percentile(double percentile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(n * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(buckets.length() - 1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.glxn.qrgen.javase;
+
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * One of <code>count</code> disjoint parts of an input, so a long list can be generated by several processes or
+ * machines each reading the whole input and keeping only the rows of its own shard.
+ * <p>
+ * By default a row belongs to the shard picked by a CRC-32 of its equipment id, so a row keeps its shard when rows
+ * are added or removed elsewhere in the list. Rows whose code cannot be read are placed by a CRC-32 of the whole row.
+ * Sharding by row places rows round robin by their index in the input instead, which balances the shards exactly
+ * but moves rows between shards when the list changes.
+ * </p>
+ */
+public class Shard {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int index;
+    private final int count;
+    private final boolean byRow;
+
+    /**
+     * @param index the number of this shard counting from 1
+     * @param count the number of shards
+     * @param byRow place rows by their index in the input instead of by equipment id
+     */
+    public Shard(int index, int count, boolean byRow) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Shard must be i/n with 1 <= i <= n but was " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+        this.byRow = byRow;
+    }
+
+    /**
+     * @param value the shard as i/n, e.g. 2/4 for the second of four shards
+     * @param byRow place rows by their index in the input instead of by equipment id
+     * @return the shard
+     * @throws IllegalArgumentException if the value is not of the form i/n
+     */
+    public static Shard parse(String value, boolean byRow) {
+        int slash = value == null ? -1 : value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Option --shard expects i/n but was " + value);
+        }
+        try {
+            return new Shard(Integer.parseInt(value.substring(0, slash)), Integer.parseInt(value.substring(slash + 1)),
+                    byRow);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --shard expects i/n but was " + value);
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isByRow() {
+        return byRow;
+    }
+
+    /**
+     * @param row  the zero based index of the row in the input
+     * @param text the row text
+     * @return true if the row is generated by this shard
+     */
+    public boolean owns(int row, String text) {
+        return bucket(row, text) == index - 1;
+    }
+
+    private int bucket(int row, String text) {
+        if (byRow) {
+            return row % count;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(equipmentId(text).getBytes(UTF_8));
+        return (int) (crc.getValue() % count);
+    }
+
+    /**
+     * @return the equipment id of the row, the last segment of its code, or the whole row if it has no code
+     */
+    static String equipmentId(String text) {
+        int comma = text.indexOf(',');
+        if (comma < 0) {
+            return text;
+        }
+        int slash = text.lastIndexOf('/', comma);
+        return slash < 0 ? text : text.substring(slash + 1, comma);
+    }
+
+    /**
+     * @return the suffix telling the files of this shard apart from those of the other shards, e.g. .shard-2-of-4
+     */
+    public String getSuffix() {
+        return ".shard-" + index + "-of-" + count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count + (byRow ? " by row" : " by id");
+    }
+}
@@ -0,0 +1,237 @@
+package net.glxn.qrgen.javase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Collects the {@link ShardRecord}s of a sharded run and checks them against the input: every shard of the run must
+ * be present once, and every row of the input must have been handled by exactly one shard from the same text.
+ */
+public class ShardMerge {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Map<Integer, Summary> shards = new TreeMap<>();
+    private final Map<Integer, List<Entry>> rows = new HashMap<>();
+    private final List<String> problems = new ArrayList<>();
+    private int count;
+    private String mode;
+
+    /**
+     * Adds the shard records found at a destination, a directory prefix as given to FILE or a ZIP archive written
+     * with --zip.
+     *
+     * @param location the destination of one or more shards
+     * @return the number of shard records found
+     * @throws IOException if a record cannot be read
+     */
+    public int load(String location) throws IOException {
+        int found = 0;
+        File file = new File(location);
+        if (file.isFile()) {
+            try (ZipFile zip = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.getName().startsWith(ShardRecord.FILE_NAME)) {
+                        add(location + "!" + entry.getName(),
+                                new InputStreamReader(zip.getInputStream(entry), UTF_8));
+                        found++;
+                    }
+                }
+            }
+        } else {
+            File directory = file.isDirectory() ? file : file.getAbsoluteFile().getParentFile();
+            String prefix = (file.isDirectory() ? "" : file.getName()) + ShardRecord.FILE_NAME;
+            String[] names = directory == null ? null : directory.list();
+            if (names != null) {
+                for (String name : names) {
+                    if (name.startsWith(prefix)) {
+                        File record = new File(directory, name);
+                        add(record.getPath(), Files.newBufferedReader(record.toPath(), UTF_8));
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds one shard record.
+     *
+     * @param source where the record was read from, for messages
+     * @param in     the record, it is closed
+     * @throws IOException if the record cannot be read
+     */
+    public void add(String source, Reader in) throws IOException {
+        try (BufferedReader reader = new BufferedReader(in)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(ShardRecord.HEADER)) {
+                problems.add(source + " is not a shard record");
+                return;
+            }
+            String[] parts = header.substring(ShardRecord.HEADER.length()).split(" ");
+            Shard shard;
+            try {
+                shard = Shard.parse(parts[0], parts.length > 2 && "row".equals(parts[2]));
+            } catch (IllegalArgumentException e) {
+                problems.add(source + " has a corrupt header :" + header);
+                return;
+            }
+            String shardMode = parts.length > 2 ? parts[2] : "id";
+            if (mode == null) {
+                count = shard.getCount();
+                mode = shardMode;
+            } else if (count != shard.getCount() || !mode.equals(shardMode)) {
+                problems.add(source + " is shard " + shard + " but other shards are of " + count + " by " + mode);
+                return;
+            }
+            if (shards.containsKey(shard.getIndex())) {
+                problems.add(source + " repeats shard " + shard.getIndex() + "/" + count + " of "
+                        + shards.get(shard.getIndex()).source);
+                return;
+            }
+            Summary summary = new Summary(source);
+            shards.put(shard.getIndex(), summary);
+            String line;
+            for (int number = 2; (line = reader.readLine()) != null; number++) {
+                String[] fields = line.split("\t", -1);
+                int row;
+                try {
+                    row = fields.length < 4 ? -1 : Integer.parseInt(fields[0]);
+                } catch (NumberFormatException e) {
+                    row = -1;
+                }
+                if (row < 0) {
+                    problems.add(source + " line " + number + " is truncated or corrupt");
+                    continue;
+                }
+                List<Entry> entries = rows.get(row);
+                if (entries == null) {
+                    entries = new ArrayList<>(1);
+                    rows.put(row, entries);
+                }
+                entries.add(new Entry(shard.getIndex(), fields[1]));
+                summary.add(fields[2]);
+            }
+        }
+    }
+
+    /**
+     * Checks the records against the input they were generated from.
+     *
+     * @param input the rows of the input, read with the same options as the shards
+     * @return the problems found, empty if the shards cover every row exactly once
+     */
+    public List<String> check(Iterator<String> input) {
+        List<String> found = new ArrayList<>(problems);
+        if (mode == null) {
+            found.add("No shard records found");
+            return found;
+        }
+        for (int i = 1; i <= count; i++) {
+            if (!shards.containsKey(i)) {
+                found.add("Shard " + i + "/" + count + " is missing");
+            }
+        }
+        int row = 0;
+        for (; input.hasNext(); row++) {
+            String checksum = ShardRecord.checksum(input.next());
+            List<Entry> entries = rows.get(row);
+            if (entries == null) {
+                found.add("Row " + row + " is not covered by any shard");
+            } else if (entries.size() > 1) {
+                StringBuilder message = new StringBuilder("Row " + row + " is covered by shards");
+                for (Entry entry : entries) {
+                    message.append(' ').append(entry.shard).append('/').append(count);
+                }
+                found.add(message.toString());
+            } else if (!entries.get(0).checksum.equals(checksum)) {
+                found.add("Row " + row + " of shard " + entries.get(0).shard + "/" + count
+                        + " was generated from a different row text");
+            }
+        }
+        for (int extra : new TreeMap<>(rows).keySet()) {
+            if (extra >= row) {
+                found.add("Row " + extra + " of shard " + rows.get(extra).get(0).shard + "/" + count
+                        + " is not in the input");
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return a line per shard with its row counts, in shard order
+     */
+    public List<String> getSummaries() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Integer, Summary> shard : shards.entrySet()) {
+            lines.add("Shard " + shard.getKey() + "/" + count + " " + shard.getValue());
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
+    private static class Entry {
+
+        private final int shard;
+        private final String checksum;
+
+        Entry(int shard, String checksum) {
+            this.shard = shard;
+            this.checksum = checksum;
+        }
+    }
+
+    private static class Summary {
+
+        private final String source;
+        private int rows;
+        private int generated;
+        private int unchanged;
+        private int failed;
+
+        Summary(String source) {
+            this.source = source;
+        }
+
+        void add(String outcome) {
+            rows++;
+            switch (outcome) {
+                case ShardRecord.GENERATED:
+                case ShardRecord.RESUMED:
+                    generated++;
+                    break;
+                case ShardRecord.UNCHANGED:
+                    unchanged++;
+                    break;
+                case ShardRecord.FAILED:
+                    failed++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Size :" + rows + " Generated :" + generated + " Unchanged :" + unchanged + " Failed :" + failed
+                    + " (" + source + ")";
+        }
+    }
+}
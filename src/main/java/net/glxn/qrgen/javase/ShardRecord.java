@@ -0,0 +1,60 @@
+package net.glxn.qrgen.javase;
+
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * The list of rows a shard handled, written next to its outputs so {@link ShardMerge} can check the shards together
+ * covered every row of the input exactly once.
+ * <p>
+ * The record starts with a <code># shard i/n by id|row</code> line followed by one tab separated line per row:
+ * the zero based row index, the CRC-32 of the row text, the outcome (generated, unchanged, resumed, failed or empty)
+ * and the file name, empty if the row failed.
+ * </p>
+ */
+public class ShardRecord {
+
+    public static final String FILE_NAME = ".qrgen-rows";
+
+    static final String HEADER = "# shard ";
+    static final String GENERATED = "generated";
+    static final String UNCHANGED = "unchanged";
+    static final String RESUMED = "resumed";
+    static final String FAILED = "failed";
+    static final String EMPTY = "empty";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Shard shard;
+    private final StringBuilder lines = new StringBuilder();
+
+    public ShardRecord(Shard shard) {
+        this.shard = shard;
+        lines.append(HEADER).append(shard).append('\n');
+    }
+
+    /**
+     * @return the name of the record of the shard in its destination, e.g. .qrgen-rows.shard-2-of-4
+     */
+    public String getFileName() {
+        return FILE_NAME + shard.getSuffix();
+    }
+
+    /**
+     * Adds a row, rows are added in input order by a single thread.
+     */
+    void add(int row, String text, String outcome, String fileName) {
+        lines.append(row).append('\t').append(checksum(text)).append('\t').append(outcome).append('\t')
+                .append(fileName == null ? "" : fileName).append('\n');
+    }
+
+    static String checksum(String text) {
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    public byte[] toBytes() {
+        return lines.toString().getBytes(UTF_8);
+    }
+}
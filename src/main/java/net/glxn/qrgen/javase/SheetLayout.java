@@ -0,0 +1,173 @@
+package net.glxn.qrgen.javase;
+
+import java.util.Locale;
+
+/**
+ * The page geometry labels are imposed onto by {@link SheetWriter}: paper size, resolution, a grid of equal cells
+ * inside the margins, and the bleed.
+ * <p>
+ * Every label is scaled to the largest square that fits its cell and centred in it. The bleed is the part of that
+ * square outside the cut line of the sticker, so the sticker is the label square less the bleed on every side and a
+ * slightly misaligned cut still runs through the white border of the label. Cut marks are drawn inside the bleed.
+ * </p>
+ */
+public class SheetLayout {
+
+    private static final double MM_PER_INCH = 25.4;
+
+    private final double paperWidth;
+    private final double paperHeight;
+    private final int dpi;
+    private final int columns;
+    private final int rows;
+    private final double margin;
+    private final double bleed;
+
+    /**
+     * @param paperWidth  the paper width in millimetres
+     * @param paperHeight the paper height in millimetres
+     * @param dpi         the print resolution in dots per inch
+     * @param columns     the labels per row
+     * @param rows        the label rows per page
+     * @param margin      the unprinted border of the page in millimetres
+     * @param bleed       how far every label extends beyond its cut line, in millimetres
+     */
+    public SheetLayout(double paperWidth, double paperHeight, int dpi, int columns, int rows, double margin,
+                       double bleed) {
+        if (paperWidth <= 0 || paperHeight <= 0) {
+            throw new IllegalArgumentException("paper size must be positive but was " + paperWidth + "x" + paperHeight);
+        }
+        if (dpi < 1) {
+            throw new IllegalArgumentException("dpi must be positive but was " + dpi);
+        }
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("grid must be at least 1x1 but was " + columns + "x" + rows);
+        }
+        if (margin < 0 || bleed < 0) {
+            throw new IllegalArgumentException("margin and bleed must not be negative");
+        }
+        this.paperWidth = paperWidth;
+        this.paperHeight = paperHeight;
+        this.dpi = dpi;
+        this.columns = columns;
+        this.rows = rows;
+        this.margin = margin;
+        this.bleed = bleed;
+        if (getLabelSize() - 2 * pixels(bleed) < 1) {
+            throw new IllegalArgumentException("No room for a " + columns + "x" + rows + " grid with a margin of "
+                    + margin + "mm and a bleed of " + bleed + "mm");
+        }
+    }
+
+    /**
+     * Parses a paper name as used on the command line.
+     *
+     * @param paper A4, A3, or a size in millimetres such as 100x150, portrait
+     * @return the width and height in millimetres
+     */
+    public static double[] paper(String paper) {
+        switch (paper.toUpperCase(Locale.ROOT)) {
+            case "A4":
+                return new double[]{210, 297};
+            case "A3":
+                return new double[]{297, 420};
+            default:
+                double[] size = pair(paper);
+                if (size == null) {
+                    throw new IllegalArgumentException("Expected A4, A3 or WIDTHxHEIGHT in mm but was " + paper);
+                }
+                return size;
+        }
+    }
+
+    /**
+     * @param grid a grid such as 3x4, columns first
+     * @return the columns and rows
+     */
+    public static int[] grid(String grid) {
+        double[] size = pair(grid);
+        if (size == null || size[0] != Math.rint(size[0]) || size[1] != Math.rint(size[1])) {
+            throw new IllegalArgumentException("Expected COLUMNSxROWS but was " + grid);
+        }
+        return new int[]{(int) size[0], (int) size[1]};
+    }
+
+    private static double[] pair(String value) {
+        int x = value.toLowerCase(Locale.ROOT).indexOf('x');
+        if (x < 0) {
+            return null;
+        }
+        try {
+            return new double[]{Double.parseDouble(value.substring(0, x)), Double.parseDouble(value.substring(x + 1))};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private int pixels(double millimetres) {
+        return (int) Math.round(millimetres / MM_PER_INCH * dpi);
+    }
+
+    public int getDpi() {
+        return dpi;
+    }
+
+    public int getPageWidth() {
+        return pixels(paperWidth);
+    }
+
+    public int getPageHeight() {
+        return pixels(paperHeight);
+    }
+
+    /**
+     * @return the number of labels on a full page
+     */
+    public int getCapacity() {
+        return columns * rows;
+    }
+
+    private int getCellWidth() {
+        return (getPageWidth() - 2 * pixels(margin)) / columns;
+    }
+
+    private int getCellHeight() {
+        return (getPageHeight() - 2 * pixels(margin)) / rows;
+    }
+
+    /**
+     * @return the width and height in pixels every label is scaled to, bleed included
+     */
+    public int getLabelSize() {
+        return Math.min(getCellWidth(), getCellHeight());
+    }
+
+    /**
+     * @param slot the position on the page, counting from 0 along the rows
+     * @return the left edge of the label in the slot, in pixels
+     */
+    public int getLabelX(int slot) {
+        return pixels(margin) + (slot % columns) * getCellWidth() + (getCellWidth() - getLabelSize()) / 2;
+    }
+
+    /**
+     * @param slot the position on the page, counting from 0 along the rows
+     * @return the top edge of the label in the slot, in pixels
+     */
+    public int getLabelY(int slot) {
+        return pixels(margin) + (slot / columns) * getCellHeight() + (getCellHeight() - getLabelSize()) / 2;
+    }
+
+    /**
+     * @return the distance in pixels from the edge of a label to its cut line
+     */
+    public int getBleed() {
+        return pixels(bleed);
+    }
+
+    @Override
+    public String toString() {
+        return paperWidth + "x" + paperHeight + "mm " + dpi + "dpi " + columns + "x" + rows + " margin " + margin
+                + "mm bleed " + bleed + "mm";
+    }
+}
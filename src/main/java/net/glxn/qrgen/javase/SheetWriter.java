@@ -0,0 +1,197 @@
+package net.glxn.qrgen.javase;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Imposes labels onto print sheets, one page at a time, as laid out by a {@link SheetLayout}.
+ * <p>
+ * The page is a single packed 1-bit image reused for every page, so memory stays bounded to one page however long
+ * the batch. Packed black and white labels, as rendered by {@link QRCode#image()}, are scaled into their slot
+ * straight from their bits with nearest neighbour sampling, which keeps module edges sharp; other images are drawn
+ * through Java 2D. A full page is encoded as a 1-bit PNG carrying the print resolution. Not thread-safe, the labels
+ * of a batch are placed in input order by the thread running it.
+ * </p>
+ */
+public class SheetWriter {
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    private final SheetLayout layout;
+    private final PngEncoder encoder;
+    private final String prefix;
+    private final BufferedImage page;
+    private final byte[] data;
+    private final int stride;
+    private int[] columns = new int[0];
+    private byte[] line = new byte[0];
+    private int slot;
+    private int pages;
+
+    /**
+     * @param layout  the page geometry
+     * @param encoder the encoder for finished pages
+     * @param prefix  the start of every page file name, e.g. sheet
+     */
+    public SheetWriter(SheetLayout layout, PngEncoder encoder, String prefix) {
+        this.layout = layout;
+        this.encoder = encoder;
+        this.prefix = prefix;
+        this.page = BinaryRaster.create(layout.getPageWidth(), layout.getPageHeight(), WHITE, BLACK);
+        Raster raster = page.getRaster();
+        this.data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        this.stride = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+    }
+
+    /**
+     * Places a label into the next free slot of the current page.
+     *
+     * @param label the rendered label
+     * @return the file name of the page the label is on
+     */
+    public String add(BufferedImage label) {
+        int size = layout.getLabelSize();
+        int x = layout.getLabelX(slot);
+        int y = layout.getLabelY(slot);
+        if (isBlackOnWhite(label)) {
+            scale(label, x, y, size);
+        } else {
+            Graphics2D g = page.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                g.drawImage(label, x, y, size, size, null);
+            } finally {
+                g.dispose();
+            }
+        }
+        drawCutMarks(x, y, size);
+        slot++;
+        return getPageName();
+    }
+
+    /**
+     * @return true if the current page has no free slot left
+     */
+    public boolean isFull() {
+        return slot == layout.getCapacity();
+    }
+
+    /**
+     * @return true if no label has been placed on the current page
+     */
+    public boolean isEmpty() {
+        return slot == 0;
+    }
+
+    /**
+     * @return the file name of the current page, e.g. sheet-0001.png
+     */
+    public String getPageName() {
+        return String.format(Locale.ROOT, "%s-%04d.png", prefix, pages + 1);
+    }
+
+    /**
+     * Encodes the current page and starts a new, empty one.
+     *
+     * @return the PNG of the page
+     * @throws IOException if the page cannot be encoded
+     */
+    public byte[] finishPage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        encoder.write(page, out, layout.getDpi());
+        Arrays.fill(data, (byte) 0);
+        slot = 0;
+        pages++;
+        return out.toByteArray();
+    }
+
+    private static boolean isBlackOnWhite(BufferedImage label) {
+        if (!BinaryRaster.isPacked(label)) {
+            return false;
+        }
+        IndexColorModel model = (IndexColorModel) label.getColorModel();
+        return model.getRGB(0) == WHITE && model.getRGB(1) == BLACK;
+    }
+
+    /**
+     * Copies the label into the page, scaled to a square of the given size by nearest neighbour sampling. Each
+     * source row is scaled once into a line of page bytes, which is then OR-ed into every page row sampling it; the
+     * slot is blank, and bits of a neighbouring slot sharing an edge byte are left alone.
+     */
+    private void scale(BufferedImage label, int left, int top, int size) {
+        Raster raster = label.getRaster();
+        byte[] source = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int sourceStride = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        int width = label.getWidth();
+        int height = label.getHeight();
+        int first = left >> 3;
+        int bytes = ((left + size - 1) >> 3) - first + 1;
+        if (columns.length != size) {
+            columns = new int[size];
+        }
+        if (line.length < bytes) {
+            line = new byte[bytes];
+        }
+        for (int x = 0; x < size; x++) {
+            columns[x] = (int) ((long) x * width / size);
+        }
+        int scaled = -1;
+        for (int y = 0; y < size; y++) {
+            int sy = (int) ((long) y * height / size);
+            if (sy != scaled) {
+                scaled = sy;
+                Arrays.fill(line, 0, bytes, (byte) 0);
+                int sourceRow = sy * sourceStride;
+                int offset = left - (first << 3);
+                for (int x = 0; x < size; x++) {
+                    int sx = columns[x];
+                    if ((source[sourceRow + (sx >> 3)] & (0x80 >>> (sx & 7))) != 0) {
+                        int px = offset + x;
+                        line[px >> 3] |= (byte) (0x80 >>> (px & 7));
+                    }
+                }
+            }
+            int row = (top + y) * stride + first;
+            for (int i = 0; i < bytes; i++) {
+                data[row + i] |= line[i];
+            }
+        }
+    }
+
+    /**
+     * Draws the continuation of the four cut lines through the bleed at every corner of the sticker, so the marks
+     * are cut away with the bleed.
+     */
+    private void drawCutMarks(int left, int top, int size) {
+        int bleed = layout.getBleed();
+        if (bleed == 0) {
+            return;
+        }
+        int near = bleed;
+        int far = size - bleed - 1;
+        for (int i = 0; i < bleed; i++) {
+            set(left + i, top + near);
+            set(left + i, top + far);
+            set(left + size - 1 - i, top + near);
+            set(left + size - 1 - i, top + far);
+            set(left + near, top + i);
+            set(left + far, top + i);
+            set(left + near, top + size - 1 - i);
+            set(left + far, top + size - 1 - i);
+        }
+    }
+
+    private void set(int x, int y) {
+        data[y * stride + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+    }
+}
@@ -0,0 +1,53 @@
+package net.glxn.qrgen.javase;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A lean entry point for generating one label per JVM, for callers that run the jar once per code.
+ * <p>
+ * A cold single label is dominated by JVM startup, class loading and the initialization of the AWT font manager,
+ * not by encoding. This entry point loads only the classes the label needs, none of the batch, spreadsheet or server
+ * code, and resolves the fonts on a second thread while the code is encoded. Combined with the class data sharing
+ * archive built by the <code>appcds</code> profile, most of the remaining class loading is mapped from the archive.
+ * </p>
+ * <pre>
+ * java -XX:SharedArchiveFile=QRGenerate.jsa -XX:TieredStopAtLevel=1 -cp GENQR.jar net.glxn.qrgen.javase.SingleLabel
+ *      EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001 /data/qr/ [--timing]
+ * </pre>
+ */
+public class SingleLabel {
+
+    private SingleLabel() {
+    }
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        if (args.length < 2) {
+            System.out.println("Usage : java -cp GENQR.jar net.glxn.qrgen.javase.SingleLabel"
+                    + " [EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001] [destination] [--timing]");
+            return;
+        }
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        Thread fonts = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LabelFonts.get();
+            }
+        }, "qrgen-fonts");
+        fonts.setDaemon(true);
+        fonts.start();
+        String text = args[0];
+        try {
+            System.out.println("file name :" + QRCode.generateLabel(text, args[1]).getName());
+        } catch (Exception e) {
+            System.out.println("error machine :" + text);
+        }
+        if (args.length > 2 && "--timing".equals(args[2])) {
+            long main = (System.nanoTime() - start) / 1000000;
+            long total = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.println("Time :" + main + " ms in main, " + total + " ms since JVM start");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package net.glxn.qrgen.javase;
+
+/**
+ * The timed stages of generating a label, see {@link RunStats}.
+ */
+public enum Stage {
+    ROW_READ,
+    ROW_PARSE,
+    CREATE_MATRIX,
+    RASTERIZE,
+    LABEL_DRAW,
+    SHEET_IMPOSE,
+    PNG_ENCODE,
+    SVG_WRITE,
+    WRITE_QUEUE,
+    FILE_WRITE
+}
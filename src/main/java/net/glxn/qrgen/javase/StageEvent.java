@@ -0,0 +1,34 @@
+package net.glxn.qrgen.javase;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for one timed {@link Stage}, only loaded when the JVM has the jdk.jfr module.
+ */
+@Name("net.glxn.qrgen.Stage")
+@Label("QR Generation Stage")
+@Category("QRGen")
+@Description("Time spent in one stage of generating a label")
+class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    static void emit(Stage stage, long nanos) {
+        StageEvent event = new StageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage.name();
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.client.j2se.MatrixToImageConfig;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a QR {@link BitMatrix} and its {@link LabelText} as SVG, streamed straight to the output.
+ * <p>
+ * The dark modules of every module row are merged into horizontal runs, and all runs go into a single path element,
+ * so a code costs a few kilobytes of text and no rasterized bitmap. The label lines are written as text at the
+ * same baselines {@link LabelRenderer} draws them at, in a view box of the matrix size, so the label scales to any
+ * printer resolution.
+ * </p>
+ */
+public class SvgRenderer {
+
+    private static final String TEXT_FONT = "font-family=\"'" + LabelFonts.TEXT_FAMILY
+            + "', Helvetica, sans-serif\" font-weight=\"bold\" font-size=\"12\"";
+    private static final String NAME_FONT = "font-family=\"'" + LabelFonts.NAME_FAMILY
+            + "', Tahoma, sans-serif\" font-weight=\"bold\" font-size=\"20\"";
+
+    private final MatrixToImageConfig config;
+
+    public SvgRenderer(MatrixToImageConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @param matrix the QR matrix as returned by {@link QRCode#createMatrix(String)}
+     * @param label  the text to write, or null for the code only
+     * @param out    where the document is written to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void write(BitMatrix matrix, LabelText label, Writer out) throws IOException {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"" + width + "\" height=\""
+                + height + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+        out.write("<rect width=\"" + width + "\" height=\"" + height + "\" fill=\""
+                + color(config.getPixelOffColor()) + "\"/>\n");
+        writeRuns(matrix, out);
+        if (label != null) {
+            out.write("<g fill=\"#000000\">\n");
+            text(out, TEXT_FONT, label.getType(), LabelRenderer.TYPE_X, LabelRenderer.TYPE_Y);
+            text(out, TEXT_FONT, label.getCode(), LabelRenderer.CODE_X, LabelRenderer.CODE_Y);
+            if (label.hasName()) {
+                text(out, NAME_FONT, label.getName(), LabelRenderer.CODE_X, LabelRenderer.NAME_Y);
+            }
+            out.write("</g>\n");
+        }
+        out.write("</svg>\n");
+    }
+
+    /**
+     * Writes the path with one rectangle per horizontal run of dark modules. The module size is taken from the top
+     * left finder pattern, which is seven modules wide, so a scaled matrix is walked one module at a time and the path
+     * is written in module units, scaled back by its transform.
+     */
+    private void writeRuns(BitMatrix matrix, Writer out) throws IOException {
+        int[] topLeft = matrix.getTopLeftOnBit();
+        if (topLeft == null) {
+            return;
+        }
+        int module = moduleSize(matrix, topLeft);
+        int left = topLeft[0] % module;
+        int top = topLeft[1] % module;
+        out.write("<path fill=\"" + color(config.getPixelOnColor()) + "\" shape-rendering=\"crispEdges\""
+                + " transform=\"translate(" + left + "," + top + ") scale(" + module + ")\" d=\"");
+        StringBuilder path = new StringBuilder(32);
+        for (int y = top; y + module <= matrix.getHeight(); y += module) {
+            int x = left;
+            while (x + module <= matrix.getWidth()) {
+                if (!matrix.get(x, y)) {
+                    x += module;
+                    continue;
+                }
+                int start = x;
+                while (x + module <= matrix.getWidth() && matrix.get(x, y)) {
+                    x += module;
+                }
+                int run = (x - start) / module;
+                path.setLength(0);
+                path.append('M').append((start - left) / module).append(',').append((y - top) / module)
+                        .append('h').append(run).append("v1h-").append(run).append('z');
+                out.append(path);
+            }
+        }
+        out.write("\"/>\n");
+    }
+
+    static int moduleSize(BitMatrix matrix, int[] topLeft) {
+        int x = topLeft[0];
+        while (x < matrix.getWidth() && matrix.get(x, topLeft[1])) {
+            x++;
+        }
+        int run = x - topLeft[0];
+        return run >= 7 && run % 7 == 0 ? run / 7 : 1;
+    }
+
+    private void text(Writer out, String font, String text, int x, int y) throws IOException {
+        if (text.length() == 0) {
+            return;
+        }
+        out.write("<text x=\"" + x + "\" y=\"" + y + "\" " + font + ">");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                default:
+                    out.write(c);
+                    break;
+            }
+        }
+        out.write("</text>\n");
+    }
+
+    private static String color(int argb) {
+        String hex = Integer.toHexString(argb & 0xFFFFFF);
+        StringBuilder color = new StringBuilder("#");
+        for (int i = hex.length(); i < 6; i++) {
+            color.append('0');
+        }
+        return color.append(hex).toString();
+    }
+}
@@ -0,0 +1,25 @@
+package net.glxn.qrgen.javase;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads one complete row per line, e.g. EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001, skipping blank lines.
+ */
+class TextRowReader extends ReaderRowSource {
+
+    TextRowReader(Reader reader, String name, RunStats stats) {
+        super(reader, name, stats);
+    }
+
+    @Override
+    protected String readRow() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            if (line.trim().length() > 0) {
+                return line;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+package net.glxn.qrgen.javase;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes finished labels to an {@link OutputSink} on dedicated I/O threads, so workers go back to encoding instead of
+ * waiting on a slow destination such as an NFS share.
+ * <p>
+ * Labels wait in a bounded queue. When the destination falls behind and the queue is full, {@link #submit} blocks
+ * the worker until a slot frees up, which bounds the memory held by pending labels. The outcome of every write is
+ * passed to the {@link Callback} of the label on the I/O thread that wrote it.
+ * </p>
+ */
+public class WriteBehind {
+
+    /**
+     * Told the outcome of a write, on the I/O thread that did it.
+     */
+    public interface Callback {
+
+        /**
+         * @param error the failure of the write, or null once the label is stored
+         */
+        void written(IOException error);
+    }
+
+    private static final Write STOP = new Write(null, null, null);
+
+    private final OutputSink sink;
+    private final RunStats stats;
+    private final BlockingQueue<Write> queue;
+    private final Thread[] threads;
+
+    /**
+     * @param sink      where the labels are written
+     * @param queueSize the number of labels that may wait to be written
+     * @param threads   the number of I/O threads
+     * @param stats     the stats recording {@link Stage#WRITE_QUEUE} and {@link Stage#FILE_WRITE}
+     */
+    public WriteBehind(OutputSink sink, int queueSize, int threads, RunStats stats) {
+        this.sink = sink;
+        this.stats = stats;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.threads = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            this.threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            }, "qrgen-writer-" + (i + 1));
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Queues a label, waiting while the queue is full.
+     *
+     * @param name     the file name of the label
+     * @param data     the encoded label
+     * @param callback told the outcome of the write
+     * @throws InterruptedException if the worker is interrupted while waiting
+     */
+    public void submit(String name, byte[] data, Callback callback) throws InterruptedException {
+        Write write = new Write(name, data, callback);
+        if (!queue.offer(write)) {
+            long start = System.nanoTime();
+            queue.put(write);
+            stats.record(Stage.WRITE_QUEUE, start);
+        }
+    }
+
+    private void drain() {
+        try {
+            Write write;
+            while ((write = queue.take()) != STOP) {
+                IOException error = null;
+                long start = System.nanoTime();
+                try {
+                    sink.write(write.name, write.data);
+                    stats.record(Stage.FILE_WRITE, start);
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e.getMessage(), e);
+                }
+                write.callback.written(error);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes every queued label and stops the I/O threads. The sink is not closed.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writes
+     */
+    public void shutdown() throws InterruptedException {
+        for (int i = 0; i < threads.length; i++) {
+            queue.put(STOP);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static class Write {
+
+        private final String name;
+        private final byte[] data;
+        private final Callback callback;
+
+        Write(String name, byte[] data, Callback callback) {
+            this.name = name;
+            this.data = data;
+            this.callback = callback;
+        }
+    }
+}
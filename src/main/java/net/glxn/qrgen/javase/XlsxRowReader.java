@@ -0,0 +1,273 @@
+package net.glxn.qrgen.javase;
+
+import net.glxn.qrgen.core.exception.QRGenerationException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams the rows of the sheets of an xlsx workbook using the POI event model.
+ * <p>
+ * The sheet XML is parsed with SAX on a background thread that hands finished rows over through a small bounded
+ * queue, so memory use does not grow with the size of the workbook and the first row is available as soon as it
+ * has been parsed. Rows are joined by a {@link RowBuilder}, the header row of every sheet is skipped.
+ * </p>
+ */
+public class XlsxRowReader implements RowSource {
+
+    private static final int QUEUE_SIZE = 1024;
+    private static final Object END = new Object();
+
+    private final String fileName;
+    private final String prefix;
+    private final int sheet;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread parser;
+    private final RunStats stats;
+    private Object next;
+
+    /**
+     * Opens the workbook and starts parsing all of its sheets.
+     *
+     * @param fileName the xlsx file, its name decides the EQ/ or FL/ prefix of every row
+     */
+    public XlsxRowReader(String fileName) {
+        this(fileName, null);
+    }
+
+    /**
+     * Opens the workbook and starts parsing all of its sheets, recording the time spent parsing each row.
+     *
+     * @param fileName the xlsx file, its name decides the EQ/ or FL/ prefix of every row
+     * @param stats    the stats to record {@link Stage#ROW_READ} in, may be null
+     */
+    public XlsxRowReader(String fileName, RunStats stats) {
+        this(fileName, RowSources.prefix(fileName), 0, stats);
+    }
+
+    /**
+     * Opens the workbook and starts parsing it.
+     *
+     * @param fileName the xlsx file
+     * @param prefix   the prefix of every row, e.g. EQ/
+     * @param sheet    the number of the only sheet to read counting from 1, or 0 for all sheets
+     * @param stats    the stats to record {@link Stage#ROW_READ} in, may be null
+     */
+    public XlsxRowReader(String fileName, String prefix, int sheet, RunStats stats) {
+        this.fileName = fileName;
+        this.prefix = prefix;
+        this.sheet = sheet;
+        this.stats = stats;
+        this.parser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                parse();
+            }
+        }, "qrgen-xlsx-reader");
+        parser.setDaemon(true);
+        parser.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QRGenerationException("Interrupted while reading " + fileName, e);
+            }
+        }
+        if (next instanceof Throwable) {
+            throw new QRGenerationException("Failed to read rows from " + fileName, (Throwable) next);
+        }
+        return next != END;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String row = (String) next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Stops the background parser, rows that have not been read yet are discarded.
+     */
+    @Override
+    public void close() {
+        parser.interrupt();
+    }
+
+    private void parse() {
+        try {
+            File file = new File(fileName);
+            if (!file.isFile()) {
+                throw new FileNotFoundException(fileName + " (No such file)");
+            }
+            OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+            try {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(true);
+                XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+                xmlReader.setContentHandler(new SheetHandler(strings));
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                for (int index = 1; sheets.hasNext(); index++) {
+                    InputStream data = sheets.next();
+                    try {
+                        if (sheet == 0 || sheet == index) {
+                            xmlReader.parse(new InputSource(data));
+                        }
+                    } finally {
+                        data.close();
+                    }
+                }
+            } finally {
+                pkg.revert();
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // closed by the consumer
+        } catch (Exception e) {
+            try {
+                queue.put(e);
+            } catch (InterruptedException ignored) {
+                // closed by the consumer
+            }
+        }
+    }
+
+    /**
+     * Appends a numeric cell the way it reads in the sheet: whole numbers without a fraction, e.g. 1000 rather than
+     * the 1000.0 of {@link Double#toString}, and other values as they are stored. Unlike replacing ".0" in the joined
+     * row this leaves text such as V1.05 untouched.
+     */
+    static void appendNumber(StringBuilder row, CharSequence stored) {
+        String text = stored.toString();
+        double number = Double.parseDouble(text);
+        if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+            row.append((long) number);
+        } else {
+            row.append(text);
+        }
+    }
+
+    /**
+     * Collects the cells of each row, only string and numeric cells contribute text as with the DOM based reader.
+     */
+    private class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable strings;
+        private final RowBuilder row = new RowBuilder(prefix);
+        private final StringBuilder value = new StringBuilder();
+        private String cellType;
+        private boolean formula;
+        private boolean inValue;
+        private long rowStart;
+
+        SheetHandler(ReadOnlySharedStringsTable strings) {
+            this.strings = strings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    rowStart = System.nanoTime();
+                    row.start();
+                    break;
+                case "c":
+                    cellType = attributes.getValue("t");
+                    formula = false;
+                    value.setLength(0);
+                    break;
+                case "f":
+                    formula = true;
+                    break;
+                case "v":
+                case "t":
+                    inValue = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    inValue = false;
+                    break;
+                case "c":
+                    appendCell();
+                    break;
+                case "row":
+                    String text = row.finish();
+                    if (stats != null) {
+                        stats.record(Stage.ROW_READ, rowStart);
+                    }
+                    if (text != null) {
+                        offer(text);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void appendCell() {
+            if (!formula && value.length() > 0) {
+                if (cellType == null || "n".equals(cellType)) {
+                    appendNumber(row.text(), value);
+                } else if ("s".equals(cellType)) {
+                    row.text().append(strings.getEntryAt(Integer.parseInt(value.toString())));
+                } else if ("inlineStr".equals(cellType)) {
+                    row.text().append(value);
+                }
+            }
+            row.endCell();
+        }
+
+        private void offer(String text) {
+            try {
+                queue.put(text);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QRGenerationException("Reading of " + fileName + " was closed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.glxn.qrgen.javase;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams all outputs into a single ZIP archive, one sequential write instead of a file per label.
+ * <p>
+ * Entries are appended as labels finish. PNG entries are STORED, since PNG data is already compressed, and other
+ * entries such as SVG labels are deflated. On close an
+ * {@value #INDEX} entry listing the name, size and CRC-32 of every entry is added. A name that was already written
+ * is skipped, as an archive cannot replace an entry. Every entry carries the time the sink was created, so the same
+ * labels written in the same order give the same archive.
+ * </p>
+ */
+public class ZipSink implements OutputSink {
+
+    public static final String INDEX = "index.tsv";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ZipOutputStream zip;
+    private final CRC32 crc = new CRC32();
+    private final StringBuilder index = new StringBuilder();
+    private final Set<String> names = new HashSet<>();
+    private final long time;
+
+    public ZipSink(File file) throws IOException {
+        this(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+    }
+
+    /**
+     * @param out the stream to write the archive to, closed with the sink
+     */
+    public ZipSink(OutputStream out) {
+        this(out, System.currentTimeMillis());
+    }
+
+    /**
+     * @param out  the stream to write the archive to, closed with the sink
+     * @param time the modification time of every entry, in milliseconds since the epoch
+     */
+    public ZipSink(OutputStream out, long time) {
+        this.zip = new ZipOutputStream(out, UTF_8);
+        this.time = time;
+    }
+
+    @Override
+    public synchronized void write(String name, byte[] data) throws IOException {
+        if (!names.add(name)) {
+            return;
+        }
+        crc.reset();
+        crc.update(data, 0, data.length);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        if (name.endsWith(".png")) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+        index.append(name).append('\t').append(data.length).append('\t')
+                .append(Long.toHexString(crc.getValue())).append('\n');
+    }
+
+    /**
+     * Writes the index and the archive directory and closes the underlying stream.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            ZipEntry entry = new ZipEntry(INDEX);
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            zip.write(index.toString().getBytes(UTF_8));
+            zip.closeEntry();
+        } finally {
+            zip.close();
+        }
+    }
+}
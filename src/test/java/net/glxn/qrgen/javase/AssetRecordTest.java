@@ -0,0 +1,47 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AssetRecordTest {
+
+    @Test
+    public void shouldParseRow() {
+        AssetRecord record = AssetRecord.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001");
+
+        Assert.assertEquals("EQ", record.getType());
+        Assert.assertEquals("BEB1", record.getPlant());
+        Assert.assertEquals("1000", record.getSection());
+        Assert.assertEquals("0", record.getSubSection());
+        Assert.assertEquals("EPL-AGT-EVLIM00001", record.getEquipmentId());
+        Assert.assertEquals("Machine 001-001", record.getMachineName());
+        Assert.assertEquals("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001", record.getCode());
+        Assert.assertEquals("1000-0EPL-AGT-EVLIM00001-Machine 001-001", record.getName());
+    }
+
+    @Test
+    public void shouldKeepDotZeroInValues() {
+        AssetRecord record = AssetRecord.parse("FL/BEB1/1000/0/EPL-V1.05,Pump 1.0");
+
+        Assert.assertEquals("EPL-V1.05", record.getEquipmentId());
+        Assert.assertEquals("Pump 1.0", record.getMachineName());
+    }
+
+    @Test
+    public void shouldNameTheProblem() {
+        assertInvalid("EQ/BEB1/1000/0/EPL-AGT-EVLIM00003,", "the machine name is empty");
+        assertInvalid("EQ/BEB1/1000/0/EPL-AGT-EVLIM00003", "no ','");
+        assertInvalid("EQ/BEB1/1000/EPL-AGT-EVLIM00003,Machine", "the code has 4 '/' separated segments");
+        assertInvalid("EQ/BEB1/1000/0/EPL/AGT,Machine", "more than 5");
+    }
+
+    private void assertInvalid(String text, String reason) {
+        try {
+            AssetRecord.parse(text);
+            Assert.fail("accepted " + text);
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(text));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+}
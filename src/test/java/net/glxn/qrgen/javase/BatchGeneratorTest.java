@@ -0,0 +1,164 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BatchGeneratorTest {
+
+    private static final List<String> ROWS = Arrays.asList(
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,Machine 001-002");
+
+    @Test
+    public void shouldFailRowsWhoseQueuedWriteFails() throws Exception {
+        final Map<String, byte[]> stored = new HashMap<>();
+        OutputSink sink = new OutputSink() {
+            @Override
+            public synchronized void write(String name, byte[] data) throws IOException {
+                if (name.endsWith(".png")) {
+                    throw new IOException("disk full");
+                }
+                stored.put(name, data);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final List<LabelResult> results = new ArrayList<>();
+        GeneratorOptions options = new GeneratorOptions().withThreads(2).withShard(new Shard(1, 1, true));
+        Assert.assertTrue(options.getWriteQueue() > 0);
+
+        BatchReport report = new BatchGenerator(sink, options, new LabelListener() {
+            @Override
+            public void completed(LabelResult result) {
+                results.add(result);
+            }
+        }).run(ROWS.iterator());
+
+        Assert.assertEquals(2, report.getRows());
+        Assert.assertEquals(0, report.getGenerated());
+        Assert.assertEquals(2, report.getFailures().size());
+        Assert.assertEquals("disk full", report.getFailures().get(0).getCause().getMessage());
+        Assert.assertEquals(2, results.size());
+        for (LabelResult result : results) {
+            Assert.assertEquals(LabelResult.Status.FAILED, result.getStatus());
+        }
+        String record = new String(stored.get(ShardRecord.FILE_NAME + ".shard-1-of-1"), "UTF-8");
+        Assert.assertFalse(record, record.contains(ShardRecord.GENERATED));
+        Assert.assertTrue(record, record.contains("\t" + ShardRecord.FAILED + "\t"));
+    }
+
+    @Test
+    public void shouldReuseTheWorkersForEveryRow() throws Exception {
+        final Set<Thread> workers = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        OutputSink sink = new OutputSink() {
+            @Override
+            public void write(String name, byte[] data) {
+                workers.add(Thread.currentThread());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rows.add("EQ/BEB1/1000/0/EPL-AGT-EVLIM" + i + ",Machine " + i);
+        }
+        for (boolean virtual : new boolean[]{false, true}) {
+            workers.clear();
+            BatchReport report = new BatchGenerator(sink, new GeneratorOptions().withThreads(3).withWriteQueue(0)
+                    .withVirtualThreads(virtual)).run(rows.iterator());
+
+            Assert.assertEquals(40, report.getGenerated());
+            Assert.assertTrue(workers.size() + " workers", workers.size() <= 3);
+            if (!virtual) {
+                Assert.assertFalse(report.isVirtualThreads());
+            }
+        }
+    }
+
+    @Test
+    public void shouldProduceTheSameOutputWhateverTheWorkerCount() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            if (i % 7 == 3) {
+                rows.add("EQ/BEB1/1000/0/EPL-AGT-EVLIM" + i + ",");
+            } else if (i % 11 == 5) {
+                rows.add("not a row " + i);
+            } else {
+                rows.add("EQ/BEB1/1000/0/EPL-AGT-EVLIM" + i + ",Machine " + i);
+            }
+        }
+        Map<String, byte[]> single = new HashMap<>();
+        Map<String, byte[]> parallel = new HashMap<>();
+
+        String one = runConsole(rows, 1, single);
+        String eight = runConsole(rows, 8, parallel);
+
+        Assert.assertTrue(one, one.contains("error machine :not a row 5"));
+        Assert.assertEquals(one, eight);
+        Assert.assertEquals(single.keySet(), parallel.keySet());
+        for (Map.Entry<String, byte[]> entry : single.entrySet()) {
+            Assert.assertArrayEquals(entry.getKey(), entry.getValue(), parallel.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void shouldWriteTheSameArchiveWhateverTheWorkerCount() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            rows.add(i % 7 == 3 ? "not a row " + i : "EQ/BEB1/1000/0/EPL-AGT-EVLIM" + i + ",Machine " + i);
+        }
+
+        byte[] one = zip(rows, 1);
+        byte[] eight = zip(rows, 8);
+
+        Assert.assertTrue(one.length > 0);
+        Assert.assertArrayEquals(one, eight);
+    }
+
+    private static byte[] zip(List<String> rows, int threads) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipSink sink = new ZipSink(out, 1500000000000L)) {
+            new BatchGenerator(sink, new GeneratorOptions().withThreads(threads)).run(rows.iterator());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the console output of a FILE run, per row lines followed by the summary and its failures
+     */
+    private static String runConsole(List<String> rows, int threads, final Map<String, byte[]> stored)
+            throws Exception {
+        OutputSink sink = new OutputSink() {
+            @Override
+            public synchronized void write(String name, byte[] data) {
+                stored.put(name, data);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(log, true, "UTF-8");
+        GeneratorOptions options = new GeneratorOptions().withThreads(threads);
+        BatchReport report = new BatchGenerator(sink, options, new ConsoleListener(out, false)).run(rows.iterator());
+        QRCode.printReport(out, report, options);
+        return log.toString("UTF-8");
+    }
+}
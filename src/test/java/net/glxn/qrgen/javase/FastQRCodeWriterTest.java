@@ -0,0 +1,86 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class FastQRCodeWriterTest {
+
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+    @Test
+    public void shouldEncodeTheSameMatrixAsQRCodeWriter() throws Exception {
+        Random random = new Random(42);
+        String[] levels = {"L", "M", "Q", "H"};
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(i % 10 == 0 ? 600 : 60);
+            boolean numeric = random.nextInt(4) == 0;
+            for (int j = 0; j < length; j++) {
+                text.append(numeric ? (char) ('0' + random.nextInt(10))
+                        : ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
+            }
+            Map<EncodeHintType, Object> hints = new HashMap<>();
+            hints.put(EncodeHintType.ERROR_CORRECTION, levels[random.nextInt(4)]);
+            hints.put(EncodeHintType.MARGIN, random.nextInt(6));
+            int size = random.nextInt(450);
+            assertSameMatrix(text.toString(), size, hints);
+        }
+    }
+
+    @Test
+    public void shouldHonourPinnedVersion() throws Exception {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.QR_VERSION, 7);
+        assertSameMatrix("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001", 400, hints);
+        BitMatrix pinned = new FastQRCodeWriter(7, false).encode("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001",
+                BarcodeFormat.QR_CODE, 400, 400);
+        Assert.assertEquals(new QRCodeWriter().encode("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001",
+                BarcodeFormat.QR_CODE, 400, 400, hints), pinned);
+        try {
+            new FastQRCodeWriter(1, false).encode("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001", BarcodeFormat.QR_CODE, 400, 400);
+            Assert.fail("fitted into version 1");
+        } catch (WriterException e) {
+            Assert.assertEquals("Data too big for requested version", e.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldHandOtherTextToQRCodeWriter() throws Exception {
+        Assert.assertFalse(FastQRCodeWriter.isFastPath("EQ/BEB1/1000/0/epl-agt"));
+        assertSameMatrix("EQ/BEB1/1000/0/epl-agt,เครื่องจักร", 400, new HashMap<EncodeHintType, Object>());
+    }
+
+    @Test
+    public void shouldStayDecodableWithMaskHeuristic() throws Exception {
+        String text = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001";
+        BitMatrix matrix = new FastQRCodeWriter(0, true).encode(text, BarcodeFormat.QR_CODE, 400, 400);
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(
+                new BufferedImageLuminanceSource(MatrixToImageWriter.toBufferedImage(matrix))));
+        Assert.assertEquals(text, new QRCodeReader().decode(bitmap).getText());
+    }
+
+    private void assertSameMatrix(String text, int size, Map<EncodeHintType, Object> hints) throws Exception {
+        BitMatrix expected;
+        try {
+            expected = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, size, size, hints);
+        } catch (WriterException e) {
+            return;
+        }
+        Assert.assertEquals(text + " " + hints, expected,
+                new FastQRCodeWriter().encode(text, BarcodeFormat.QR_CODE, size, size, hints));
+    }
+}
@@ -0,0 +1,28 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeneratorOptionsTest {
+
+    @Test
+    public void shouldRejectOptionsMissingTheirValue() {
+        for (String option : new String[]{"--stats", "--stats=", "--format", "--type", "--charset", "--shard",
+                "--pattern", "--dest-root", "--threads"}) {
+            try {
+                GeneratorOptions.parse(new String[]{option}, 0);
+                Assert.fail(option + " accepted");
+            } catch (IllegalArgumentException expected) {
+                Assert.assertTrue(expected.getMessage(), expected.getMessage().startsWith("Option --"));
+            }
+        }
+    }
+
+    @Test
+    public void shouldParseOptionsWithTheirValue() {
+        GeneratorOptions options = GeneratorOptions.parse(new String[]{"--stats=run.json", "--type=FL"}, 0);
+
+        Assert.assertEquals("run.json", options.getStatsFile());
+        Assert.assertEquals("FL", options.getType());
+    }
+}
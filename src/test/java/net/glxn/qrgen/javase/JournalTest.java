@@ -0,0 +1,63 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldResumeFinishedRowsOnly() throws Exception {
+        String destination = folder.getRoot().getPath() + File.separator;
+        folder.newFile("a.png");
+        folder.newFile("b.png");
+        try (Journal journal = Journal.open(destination, Journal.FILE_NAME, false)) {
+            journal.append(0, "hash-a", ShardRecord.GENERATED, "a.png");
+            journal.append(1, "hash-b", ShardRecord.UNCHANGED, "b.png");
+            journal.append(2, null, ShardRecord.FAILED, "Invalid\trow\n");
+            journal.append(3, "hash-c", ShardRecord.GENERATED, "c.png");
+        }
+
+        try (Journal journal = Journal.open(destination, Journal.FILE_NAME, true)) {
+            Assert.assertTrue(journal.isFinished("a.png", "hash-a"));
+            Assert.assertTrue(journal.isFinished("b.png", "hash-b"));
+            Assert.assertFalse("changed row", journal.isFinished("a.png", "hash-x"));
+            Assert.assertFalse("missing file", journal.isFinished("c.png", "hash-c"));
+        }
+
+        Assert.assertEquals(4, Files.readAllLines(new File(destination + Journal.FILE_NAME).toPath(),
+                Charset.forName("UTF-8")).size());
+    }
+
+    @Test
+    public void shouldIgnoreLineCutShortByCrash() throws Exception {
+        String destination = folder.getRoot().getPath() + File.separator;
+        folder.newFile("a.png");
+        folder.newFile("b.png");
+        File file = new File(destination + Journal.FILE_NAME);
+        Files.write(file.toPath(), "0\thash-a\tgenerated\ta.png\n1\thash-b\tgener".getBytes("UTF-8"));
+
+        try (Journal journal = Journal.open(destination, Journal.FILE_NAME, true)) {
+            Assert.assertTrue(journal.isFinished("a.png", "hash-a"));
+            Assert.assertFalse(journal.isFinished("b.png", "hash-b"));
+            journal.append(1, "hash-b", ShardRecord.GENERATED, "b.png");
+        }
+        try (Journal journal = Journal.open(destination, Journal.FILE_NAME, true)) {
+            Assert.assertTrue(journal.isFinished("b.png", "hash-b"));
+        }
+
+        Files.write(file.toPath(), new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+        try (Journal journal = Journal.open(destination, Journal.FILE_NAME, false)) {
+            Assert.assertEquals(0, journal.getFinished());
+        }
+    }
+}
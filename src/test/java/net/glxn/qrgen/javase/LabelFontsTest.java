@@ -0,0 +1,18 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Font;
+
+public class LabelFontsTest {
+
+    @Test
+    public void shouldFallBackToTheLogicalSansSerifFont() {
+        Font font = LabelFonts.resolve("No Such Font Family", Font.BOLD, 12, "EQ/");
+
+        Assert.assertEquals(Font.SANS_SERIF, font.getName());
+        Assert.assertEquals(Font.BOLD, font.getStyle());
+        Assert.assertEquals(12, font.getSize());
+    }
+}
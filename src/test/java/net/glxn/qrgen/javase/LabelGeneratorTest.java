@@ -0,0 +1,123 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LabelGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldGenerateConcurrentBatchesInProcess() throws Exception {
+        final Map<String, byte[]> stored = new ConcurrentHashMap<>();
+        OutputSink sink = new OutputSink() {
+            @Override
+            public void write(String name, byte[] data) throws IOException {
+                stored.put(name, data);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final List<LabelResult> results = Collections.synchronizedList(new ArrayList<LabelResult>());
+        LabelGenerator generator = new LabelGenerator(sink, new GeneratorOptions().withThreads(4),
+                new LabelListener() {
+                    @Override
+                    public void completed(LabelResult result) {
+                        results.add(result);
+                    }
+                });
+
+        List<AssetRecord> first = new ArrayList<>();
+        List<AssetRecord> second = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            first.add(new AssetRecord("EQ", "BEB1", "1000", "0", "EPL-AGT-A" + i, "Machine A" + i));
+            second.add(new AssetRecord("EQ", "BEB1", "1000", "0", "EPL-AGT-B" + i, "Machine B" + i));
+        }
+        Future<BatchReport> a = generator.submit(first);
+        Future<BatchReport> b = generator.submit(second);
+
+        Assert.assertEquals(40, a.get().getGenerated());
+        Assert.assertEquals(40, b.get().getGenerated());
+        Assert.assertEquals(80, stored.size());
+        Assert.assertTrue(stored.containsKey("1000-0EPL-AGT-A7-Machine A7.png"));
+        Assert.assertEquals(80, results.size());
+        int next = 0;
+        for (LabelResult result : results) {
+            if (result.getText().contains("AGT-A")) {
+                Assert.assertEquals("records are reported in input order", next++, result.getRow());
+                Assert.assertEquals(LabelResult.Status.GENERATED, result.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void shouldRunBatchesSharingAJournalAndManifestOneAfterAnother() throws Exception {
+        String destination = folder.getRoot().getPath() + File.separator;
+        DirectorySink sink = new DirectorySink(destination);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            LabelGenerator a = new LabelGenerator(sink, new GeneratorOptions().withThreads(2).withIncremental(true)
+                    .withListName("a"), null, executor);
+            LabelGenerator b = new LabelGenerator(sink, new GeneratorOptions().withThreads(2).withIncremental(true)
+                    .withListName("b"), null, executor);
+            List<AssetRecord> first = records("A");
+            List<AssetRecord> second = records("B");
+
+            List<Future<BatchReport>> batches = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                batches.add(a.submit(first));
+                batches.add(b.submit(second));
+            }
+            int generated = 0;
+            int skipped = 0;
+            for (Future<BatchReport> batch : batches) {
+                BatchReport report = batch.get();
+                Assert.assertEquals(Collections.<String>emptyList(), report.getPruned());
+                generated += report.getGenerated();
+                skipped += report.getSkipped();
+            }
+            Assert.assertEquals(80, generated);
+            Assert.assertEquals(80, skipped);
+            for (String list : new String[]{"a", "b"}) {
+                List<String> journal = Files.readAllLines(new File(destination + Journal.FILE_NAME + "." + list)
+                        .toPath(), Charset.forName("UTF-8"));
+                Assert.assertEquals(40, journal.size());
+                for (String line : journal) {
+                    Assert.assertEquals(line, 4, line.split("\t", -1).length);
+                }
+            }
+
+            BatchReport rerun = a.submit(first).get();
+            Assert.assertEquals(40, rerun.getSkipped());
+            Assert.assertTrue(sink.file("1000-0EPL-AGT-B7-Machine B7.png").exists());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<AssetRecord> records(String prefix) {
+        List<AssetRecord> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            records.add(new AssetRecord("EQ", "BEB1", "1000", "0", "EPL-AGT-" + prefix + i, "Machine " + prefix + i));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,150 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class LabelServerTest {
+
+    private static final String ROW = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001";
+    private static final String OTHER = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,Machine 001-002";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LabelServer server;
+
+    @Before
+    public void start() throws Exception {
+        server = new LabelServer(0, new GeneratorOptions().withThreads(2)
+                .withDestinationRoot(folder.getRoot().getPath()));
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldAnswerOneRowWithItsPng() throws Exception {
+        HttpURLConnection connection = post("/label", ROW);
+
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("image/png", connection.getContentType());
+        byte[] png = read(connection.getInputStream());
+        Assert.assertArrayEquals(LabelJob.parse(ROW).render(new RenderOptions(), null, null), png);
+    }
+
+    @Test
+    public void shouldAnswerSeveralRowsWithAZip() throws Exception {
+        HttpURLConnection connection = post("/label", ROW + "\n" + OTHER + "\n");
+
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("application/zip", connection.getContentType());
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(connection.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        Assert.assertEquals(Arrays.asList("1000-0EPL-AGT-EVLIM00001-Machine 001-001.png",
+                "1000-0EPL-AGT-EVLIM00002-Machine 001-002.png", ZipSink.INDEX), names);
+    }
+
+    @Test
+    public void shouldBreakOffAZipWhenALaterRowFails() throws Exception {
+        char[] code = new char[4000];
+        Arrays.fill(code, 'x');
+        HttpURLConnection connection = post("/label", ROW + "\nEQ/BEB1/1000/0/" + new String(code) + ",Too long\n");
+
+        Assert.assertEquals(200, connection.getResponseCode());
+        try {
+            read(connection.getInputStream());
+            Assert.fail("the archive of a failed batch must not end normally");
+        } catch (IOException expected) {
+            // connection dropped before the end of the response
+        }
+    }
+
+    @Test
+    public void shouldWriteToADestinationInsideTheRoot() throws Exception {
+        File labels = folder.newFolder("labels");
+        HttpURLConnection connection = post("/label?dest=labels", ROW);
+
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("1000-0EPL-AGT-EVLIM00001-Machine 001-001.png\n",
+                new String(read(connection.getInputStream()), "UTF-8"));
+        Assert.assertTrue(new File(labels, "1000-0EPL-AGT-EVLIM00001-Machine 001-001.png").isFile());
+    }
+
+    @Test
+    public void shouldRefuseDestinationsOutsideTheRoot() throws Exception {
+        Assert.assertEquals(403, post("/label?dest=..", ROW).getResponseCode());
+        Assert.assertEquals(403, post("/label?dest=" + URLEncoder.encode(
+                folder.getRoot().getParentFile().getPath(), "UTF-8"), ROW).getResponseCode());
+    }
+
+    @Test
+    public void shouldAnswerWriteFailuresWith500() throws Exception {
+        Assert.assertEquals(500, post("/label?dest=missing", ROW).getResponseCode());
+    }
+
+    @Test
+    public void shouldReportStats() throws Exception {
+        post("/label", ROW).getResponseCode();
+        HttpURLConnection connection = open("/stats");
+
+        Assert.assertEquals(200, connection.getResponseCode());
+        String stats = new String(read(connection.getInputStream()), "UTF-8");
+        Assert.assertTrue(stats, stats.contains("requests 1\n"));
+        Assert.assertTrue(stats, stats.contains("labels 1\n"));
+        Assert.assertTrue(stats, stats.contains("queue 0\n"));
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+
+    private HttpURLConnection post(String path, String body) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes("UTF-8"));
+        }
+        return connection;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        try {
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,261 @@
+package net.glxn.qrgen.javase;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the FILE pipeline end to end on synthesized EQ and FL workbooks and decodes every label it wrote.
+ * <p>
+ * The defaults keep the suite fast enough for every build; <code>mvn test -Pstress</code> runs it with 100000 rows
+ * and the budgets of the stress profile. The sizes and budgets are system properties:
+ * qrgen.stress.rows, qrgen.stress.minLabelsPerSecond and qrgen.stress.maxLiveHeapMb.
+ * </p>
+ * <p>
+ * Surefire runs the tests under a UTF-8 locale so the label files can carry Thai machine names; where the file names
+ * cannot hold them, e.g. run from an IDE under the POSIX locale, the workbooks get Latin names instead.
+ * </p>
+ */
+public class LabelStressTest {
+
+    private static final int ROWS = Integer.getInteger("qrgen.stress.rows", 1000);
+    private static final int MIN_LABELS_PER_SECOND = Integer.getInteger("qrgen.stress.minLabelsPerSecond", 50);
+    private static final int MAX_LIVE_HEAP_MB = Integer.getInteger("qrgen.stress.maxLiveHeapMb", 256);
+    private static final Pattern SUMMARY = Pattern.compile(
+            "Size :(\\d+) Generated :(\\d+) Unchanged :(\\d+) Pruned :(\\d+) Failed :(\\d+)");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldGenerateAndDecodeEveryEquipmentLabel() throws Exception {
+        run("EQ", ROWS);
+    }
+
+    @Test
+    public void shouldGenerateAndDecodeEveryFunctionalLocationLabel() throws Exception {
+        run("FL", Math.max(ROWS / 4, 1));
+    }
+
+    private void run(String type, int count) throws Exception {
+        File list = folder.newFile(type + "ListforStress.xlsx");
+        File labels = folder.newFolder("labels");
+        List<String> good = new ArrayList<>();
+        int bad = writeWorkbook(list, type, count, good);
+
+        // loads the fonts and classes of the pipeline, a one-off cost that would swamp the throughput of small runs
+        LabelJob.parse(good.get(0)).render(new RenderOptions(), null, null);
+
+        HeapSampler heap = new HeapSampler();
+        heap.start();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        long start = System.nanoTime();
+        System.setOut(new PrintStream(log, true, "UTF-8"));
+        try {
+            QRCode.main(new String[]{"FILE", list.getPath(), labels.getPath() + File.separator, "--quiet"});
+        } finally {
+            System.setOut(out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long liveHeap = heap.finish();
+
+        String printed = log.toString("UTF-8");
+        Matcher summary = SUMMARY.matcher(printed);
+        Assert.assertTrue(printed, summary.find());
+        Assert.assertEquals(count, Integer.parseInt(summary.group(1)));
+        Assert.assertEquals(good.size(), Integer.parseInt(summary.group(2)));
+        Assert.assertEquals(bad, Integer.parseInt(summary.group(5)));
+        Assert.assertFalse(printed, printed.contains("Write errors"));
+
+        String[] written = labels.list();
+        int pngs = 0;
+        for (String name : written) {
+            if (name.endsWith(".png")) {
+                pngs++;
+            }
+        }
+        Assert.assertEquals(good.size(), pngs);
+        List<String> problems = decodeAll(labels, good);
+        Assert.assertTrue(problems.size() + " bad labels, first " + problems.subList(0, Math.min(5, problems.size())),
+                problems.isEmpty());
+
+        double rate = good.size() / seconds;
+        out.printf("%s %d rows: %.0f labels/s, live heap %d MB%n", type, count, rate, liveHeap >> 20);
+        Assert.assertTrue("throughput " + rate + " labels/s below the budget of " + MIN_LABELS_PER_SECOND,
+                rate >= MIN_LABELS_PER_SECOND);
+        Assert.assertTrue("live heap " + (liveHeap >> 20) + " MB above the budget of " + MAX_LIVE_HEAP_MB + " MB",
+                liveHeap <= (long) MAX_LIVE_HEAP_MB << 20);
+    }
+
+    /**
+     * Writes a workbook of the given size with a header row, Thai and Latin machine names, rows without a machine
+     * name and rows with a malformed equipment id, streamed so large lists do not need the heap.
+     *
+     * @param good receives the text of every row that should produce a label
+     * @return the number of rows that should fail
+     */
+    private static int writeWorkbook(File file, String type, int count, List<String> good) throws Exception {
+        Charset fileNames = Charset.forName(System.getProperty("sun.jnu.encoding", "UTF-8"));
+        String localName = fileNames.newEncoder().canEncode("เครื่องจักร ล้ำ เย็น") ? "เครื่องจักร ล้ำ เย็น " : "Machine ";
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        int bad = 0;
+        try {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            String[] titles = {"Plant", "X", "Y", "Equipment", "Description"};
+            for (int i = 0; i < titles.length; i++) {
+                header.createCell(i).setCellValue(titles[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                String equipment = String.format("EPL-AGT-EVLIM%06d", i);
+                String name = i % 5 == 0 ? localName + i : "Machine " + i;
+                boolean missingName = i % 53 == 26;
+                boolean malformed = i % 101 == 50;
+                if (malformed) {
+                    equipment = "EPL/AGT/" + i;
+                }
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue("BEB" + (1 + i % 3));
+                row.createCell(1).setCellValue(1000 + i % 7);
+                row.createCell(2).setCellValue(i % 4);
+                row.createCell(3).setCellValue(equipment);
+                if (!missingName) {
+                    row.createCell(4).setCellValue(name);
+                }
+                if (missingName || malformed) {
+                    bad++;
+                } else {
+                    good.add(type + "/BEB" + (1 + i % 3) + "/" + (1000 + i % 7) + "/" + i % 4 + "/" + equipment
+                            + "," + name);
+                }
+            }
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        } finally {
+            workbook.dispose();
+        }
+        return bad;
+    }
+
+    /**
+     * Decodes the label of every good row from its file and checks its payload and text placement.
+     */
+    private static List<String> decodeAll(final File labels, List<String> rows) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final LabelVerifier verifier = new LabelVerifier(1, 1, 4);
+        try {
+            final RenderOptions render = new RenderOptions();
+            List<Future<List<String>>> checks = new ArrayList<>();
+            int chunk = (rows.size() + threads - 1) / threads;
+            for (int from = 0; from < rows.size(); from += chunk) {
+                final List<String> part = rows.subList(from, Math.min(from + chunk, rows.size()));
+                checks.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        List<String> problems = new ArrayList<>();
+                        for (String row : part) {
+                            LabelJob job = LabelJob.parse(row);
+                            File file = new File(labels, job.getFileName(render));
+                            if (!file.exists()) {
+                                problems.add(file.getName() + " missing");
+                                continue;
+                            }
+                            for (String problem : verifier.check(job, render, null, Files.readAllBytes(file.toPath()))) {
+                                problems.add(file.getName() + " " + problem);
+                            }
+                        }
+                        return problems;
+                    }
+                }));
+            }
+            List<String> problems = new ArrayList<>();
+            for (Future<List<String>> check : checks) {
+                problems.addAll(check.get());
+            }
+            return problems;
+        } finally {
+            executor.shutdown();
+            verifier.close();
+        }
+    }
+
+    /**
+     * Samples the heap left in use after each garbage collection, the retained memory of the run rather than the
+     * garbage between collections.
+     */
+    private static class HeapSampler extends Thread {
+
+        private volatile boolean running = true;
+        private long peak;
+
+        HeapSampler() {
+            super("qrgen-heap-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void sample() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+                if (usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+            synchronized (this) {
+                peak = Math.max(peak, used);
+            }
+        }
+
+        /**
+         * Stops sampling and takes a last sample after a forced collection, so a run too short for the collector to
+         * have run still reports what it retains.
+         */
+        long finish() throws InterruptedException {
+            running = false;
+            join();
+            System.gc();
+            sample();
+            synchronized (this) {
+                return peak;
+            }
+        }
+    }
+}
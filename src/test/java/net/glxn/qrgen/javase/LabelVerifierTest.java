@@ -0,0 +1,103 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+public class LabelVerifierTest {
+
+    private final RenderOptions render = new RenderOptions();
+    private final LabelVerifier verifier = new LabelVerifier(1, 1, 4);
+
+    @Test
+    public void shouldPassGoodLabels() {
+        for (int i = 0; i < 200; i++) {
+            LabelJob job = LabelJob.parse(String.format("EQ/BEB1/1003/0/EPL-AGT-EVLIM%05d,Machine %d", i, i));
+            Assert.assertEquals(job.getPayload(), Collections.<String>emptyList(),
+                    verifier.check(job, render, null, job.render(render, null, null)));
+        }
+    }
+
+    @Test
+    public void shouldReportDamagedCode() throws Exception {
+        LabelJob job = LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001");
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(job.render(render, null, null)));
+        Graphics g = image.getGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(100, 100, 200, 200);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+
+        List<String> problems = verifier.check(job, render, null, out.toByteArray());
+
+        Assert.assertEquals(1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).startsWith("does not scan"));
+    }
+
+    @Test
+    public void shouldReportWrongPayload() {
+        LabelJob job = LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001");
+        LabelJob other = LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,Machine 001-001");
+
+        Assert.assertEquals(Collections.singletonList("scans as \"EQ/BEB1/1000/0/EPL-AGT-EVLIM00002\" instead of"
+                        + " \"EQ/BEB1/1000/0/EPL-AGT-EVLIM00001\""),
+                verifier.check(job, render, null, other.render(render, null, null)));
+    }
+
+    @Test
+    public void shouldReportTruncatedNameAndQuietZone() {
+        LabelJob job = LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Filling machine with a name far too long"
+                + " to fit on one label line");
+        byte[] png = job.render(render, null, null);
+
+        List<String> problems = verifier.check(job, render, null, png);
+        List<String> wide = new LabelVerifier(1, 1, 8).check(job, render, null, png);
+
+        Assert.assertEquals(1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).endsWith("cut off at the edge of the label"));
+        Assert.assertTrue(wide.toString(), wide.get(0).endsWith("inside the quiet zone of 8 modules"));
+    }
+
+    @Test
+    public void shouldReportCodesTheDetectorCannotFind() throws Exception {
+        LabelJob job = LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001");
+        int[] code = job.code(render, null, null).createMatrix(job.getPayload()).getEnclosingRectangle();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(job.render(render, null, null)));
+        BufferedImage framed = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics g = framed.getGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, framed.getWidth(), framed.getHeight());
+        g.drawImage(image.getSubimage(code[0], code[1], code[2], code[3]), code[0], code[1], null);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(framed, "png", out);
+
+        List<String> problems = new LabelVerifier(1, 1, 0).check(job, render, null, out.toByteArray());
+
+        Assert.assertEquals(Collections.singletonList(
+                "does not scan, the code is intact but the detector does not find it in the label"), problems);
+    }
+
+    @Test
+    public void shouldSampleTheSameLabelsEveryTime() {
+        LabelVerifier half = new LabelVerifier(1, 0.5, 4);
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            String name = "label-" + i + ".png";
+            Assert.assertEquals(half.isSampled(name), half.isSampled(name));
+            if (half.isSampled(name)) {
+                sampled++;
+            }
+        }
+        Assert.assertTrue(String.valueOf(sampled), sampled > 400 && sampled < 600);
+        Assert.assertFalse(new LabelVerifier(1, 0, 4).isSampled("label-1.png"));
+    }
+}
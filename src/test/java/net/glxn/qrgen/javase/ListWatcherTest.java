@@ -0,0 +1,92 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+public class ListWatcherTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldGenerateOnlyChangedRowsOfAChangedList() throws Exception {
+        final File lists = folder.newFolder("lists");
+        File labels = folder.newFolder("labels");
+        write(lists, "EQListforA.txt", "EQ/BEB1/1000/0/EPL-AGT-A1,Machine 1", "EQ/BEB1/1000/0/EPL-AGT-A2,Machine 2");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        GeneratorOptions options = new GeneratorOptions().withPattern("*.txt").withDebounceMillis(100).withQuiet(true);
+        final ListWatcher watcher = new ListWatcher(lists.getPath(), labels.getPath() + File.separator, options,
+                new PrintStream(log, true, "UTF-8"));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watcher.run();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        thread.start();
+        try {
+            awaitLog(log, "Size :2 Generated :2 Unchanged :0 Pruned :0 Failed :0");
+            File first = new File(labels, "1000-0EPL-AGT-A1-Machine 1.png");
+            Assert.assertTrue(first.exists());
+
+            write(lists, "EQListforA.txt", "EQ/BEB1/1000/0/EPL-AGT-A1,Machine 1", "EQ/BEB1/1000/0/EPL-AGT-A3,Machine 3");
+            awaitLog(log, "Size :2 Generated :1 Unchanged :1 Pruned :1 Failed :0");
+            Assert.assertTrue(new File(labels, "1000-0EPL-AGT-A3-Machine 3.png").exists());
+            Assert.assertFalse(new File(labels, "1000-0EPL-AGT-A2-Machine 2.png").exists());
+            Assert.assertTrue(new File(labels, Manifest.FILE_NAME + ".EQListforA.txt").exists());
+        } finally {
+            watcher.close();
+            thread.join(10000);
+        }
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertFalse(options.isIncremental());
+        Assert.assertTrue(options.isJournal());
+        Assert.assertNull(options.getListName());
+    }
+
+    @Test
+    public void shouldRejectOptionsAWatchedDirectoryCannotHave() throws Exception {
+        String lists = folder.newFolder("lists").getPath();
+        String labels = folder.newFolder("labels").getPath();
+        for (String option : new String[]{"--print=A4", "--zip", "--resume"}) {
+            try {
+                new ListWatcher(lists, labels, GeneratorOptions.parse(new String[]{option}, 0), System.out).close();
+                Assert.fail(option + " accepted");
+            } catch (IllegalArgumentException expected) {
+                Assert.assertTrue(expected.getMessage(), expected.getMessage().startsWith("WATCH cannot"));
+            }
+        }
+    }
+
+    private static void write(File directory, String name, String... rows) throws Exception {
+        File temp = new File(directory, "." + name);
+        Files.write(temp.toPath(), Arrays.asList(rows), UTF_8);
+        Files.move(temp.toPath(), new File(directory, name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void awaitLog(ByteArrayOutputStream log, String line) throws Exception {
+        long end = System.currentTimeMillis() + 20000;
+        while (!new String(log.toByteArray(), UTF_8).contains(line)) {
+            if (System.currentTimeMillis() > end) {
+                Assert.fail("no \"" + line + "\" in " + new String(log.toByteArray(), UTF_8));
+            }
+            Thread.sleep(20);
+        }
+    }
+}
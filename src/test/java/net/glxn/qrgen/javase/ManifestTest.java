@@ -0,0 +1,100 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ManifestTest {
+
+    private static final List<String> ROWS = Arrays.asList(
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,Machine 001-002",
+            "FL/BEB1/1000/0/EPL-AGT-EVLIM00003,Pump 003");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String destination;
+
+    @Before
+    public void generateOnce() throws Exception {
+        destination = folder.getRoot().getPath() + File.separator;
+        BatchReport first = run(ROWS, incremental());
+        Assert.assertEquals(3, first.getGenerated());
+        Assert.assertEquals(0, first.getSkipped());
+    }
+
+    @Test
+    public void shouldKeepEveryOutputOfAnUnchangedRerun() throws Exception {
+        File output = output(ROWS.get(0));
+        Assert.assertTrue(output.setLastModified(1000000000000L));
+
+        BatchReport rerun = run(ROWS, incremental());
+
+        Assert.assertEquals(0, rerun.getGenerated());
+        Assert.assertEquals(3, rerun.getSkipped());
+        Assert.assertEquals(Collections.<String>emptyList(), rerun.getPruned());
+        Assert.assertEquals(1000000000000L, output.lastModified());
+    }
+
+    @Test
+    public void shouldRegenerateEveryOutputWhenARenderOptionChanges() throws Exception {
+        GeneratorOptions options = incremental();
+        options.getRenderOptions().withVersion(4);
+
+        BatchReport rerun = run(ROWS, options);
+
+        Assert.assertEquals(3, rerun.getGenerated());
+        Assert.assertEquals(0, rerun.getSkipped());
+        Assert.assertEquals(Collections.<String>emptyList(), rerun.getPruned());
+    }
+
+    @Test
+    public void shouldRegenerateADeletedOutput() throws Exception {
+        File output = output(ROWS.get(1));
+        Assert.assertTrue(output.delete());
+
+        BatchReport rerun = run(ROWS, incremental());
+
+        Assert.assertEquals(1, rerun.getGenerated());
+        Assert.assertEquals(2, rerun.getSkipped());
+        Assert.assertTrue(output.exists());
+    }
+
+    @Test
+    public void shouldPruneTheOutputOfARemovedRow() throws Exception {
+        File output = output(ROWS.get(2));
+
+        BatchReport rerun = run(ROWS.subList(0, 2), incremental());
+
+        Assert.assertEquals(0, rerun.getGenerated());
+        Assert.assertEquals(2, rerun.getSkipped());
+        Assert.assertEquals(Collections.singletonList(output.getName()), rerun.getPruned());
+        Assert.assertFalse(output.exists());
+        String manifest = new String(Files.readAllBytes(new File(destination + Manifest.FILE_NAME).toPath()),
+                Charset.forName("UTF-8"));
+        Assert.assertFalse(manifest, manifest.contains(output.getName()));
+        Assert.assertTrue(manifest, manifest.contains(output(ROWS.get(0)).getName()));
+    }
+
+    private static GeneratorOptions incremental() {
+        return new GeneratorOptions().withThreads(2).withIncremental(true).withQuiet(true);
+    }
+
+    private BatchReport run(List<String> rows, GeneratorOptions options) throws Exception {
+        return new BatchGenerator(new DirectorySink(destination), options).run(rows.iterator());
+    }
+
+    private File output(String row) {
+        return new File(destination + LabelJob.parse(row).getFileName(new RenderOptions()));
+    }
+}
@@ -0,0 +1,101 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Deflater;
+
+public class PngEncoderTest {
+
+    @Test
+    public void shouldWriteBlackAndWhiteAsDecodablePng() throws Exception {
+        assertRoundTrip(image(Color.BLACK, Color.WHITE, 401, 37));
+    }
+
+    @Test
+    public void shouldWriteOtherColoursAsPalette() throws Exception {
+        assertRoundTrip(image(new Color(0xFF0000), new Color(0xFFFFAA), 64, 64));
+    }
+
+    @Test
+    public void shouldRefuseImagesWithMoreThanTwoColours() throws Exception {
+        BufferedImage image = image(Color.BLACK, Color.WHITE, 16, 16);
+        image.setRGB(0, 0, Color.RED.getRGB());
+        Assert.assertFalse(PngEncoder.DEFAULT.write(image, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void shouldWritePackedImagesLikeTheirPixels() throws Exception {
+        BitMatrix matrix = QRCode.from("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001").withSize(403, 403)
+                .createMatrix("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001");
+        int[][] colors = {{0xFFFFFFFF, 0xFF000000}, {0xFF000000, 0xFFFFFFFF}, {0xFFFFFFAA, 0xFFFF0000}};
+        for (int[] pair : colors) {
+            BufferedImage packed = BinaryRaster.create(matrix.getWidth(), matrix.getHeight(), pair[0], pair[1]);
+            BinaryRaster.draw(matrix, packed, null);
+            Assert.assertTrue(BinaryRaster.isPacked(packed));
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            Assert.assertTrue(PngEncoder.DEFAULT.write(toRgb(packed), expected));
+            Assert.assertTrue(PngEncoder.DEFAULT.write(packed, actual));
+            Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+            assertRoundTrip(packed);
+        }
+    }
+
+    @Test
+    public void shouldReusePooledRasterOfTheSameSize() throws Exception {
+        QRCode code = QRCode.from("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001").withSize(400, 400);
+        BitMatrix first = code.createMatrix("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001");
+        BitMatrix second = code.createMatrix("EQ/BEB1/1000/0/EPL-AGT-EVLIM00002");
+
+        BufferedImage image = BinaryRaster.drawPooled(first, 0xFFFFFFFF, 0xFF000000);
+        Assert.assertSame(image, BinaryRaster.drawPooled(second, 0xFFFFFFFF, 0xFF000000));
+        BufferedImage expected = MatrixToImageWriter.toBufferedImage(second);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Assert.assertEquals(expected.getRGB(x, y), image.getRGB(x, y));
+            }
+        }
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics g = rgb.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private void assertRoundTrip(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertTrue(new PngEncoder(Deflater.BEST_COMPRESSION, Deflater.FILTERED).write(image, out));
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(image.getWidth(), decoded.getWidth());
+        Assert.assertEquals(image.getHeight(), decoded.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Assert.assertEquals(image.getRGB(x, y), decoded.getRGB(x, y));
+            }
+        }
+    }
+
+    private BufferedImage image(Color on, Color off, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        g.setColor(off);
+        g.fillRect(0, 0, width, height);
+        g.setColor(on);
+        g.fillRect(3, 5, width / 2, height / 3);
+        g.drawString("EQ", 1, height - 2);
+        g.dispose();
+        return image;
+    }
+}
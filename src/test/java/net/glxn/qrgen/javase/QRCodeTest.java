@@ -2,20 +2,30 @@ package net.glxn.qrgen.javase;
 
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.Writer;
 import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import net.glxn.qrgen.core.exception.QRGenerationException;
 import net.glxn.qrgen.core.image.ImageType;
 import net.glxn.qrgen.core.scheme.VCard;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -26,39 +36,119 @@ import java.util.*;
 
 public class QRCodeTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
-    public void createNormalQR() {
+    public void createNormalQR() throws Exception {
         String text = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,ทดสอบภาษาไทย สำเนา ล้ำ เย็น";
-        String file = text.split("/")[4].split(",")[0];
-        //file = createTempFile();
-        System.out.println("file name :"+text.split("/")[4].split(",")[0]);
-        String fileName = "/Users/nancom/Temp/"+file+".png";
-        QRCode.from(text.split(",")[0], fileName).withSize(400, 400).file();
-        try {
-            BufferedImage image = ImageIO.read(new File(fileName));
-            Graphics g = image.getGraphics();
-            g.setColor(Color.BLACK);
-            g.setFont(new Font("Arial", Font.BOLD, 12));
-            Font font = g.getFont();
-            font.deriveFont(30f);
-
-            g.setFont(font);
-            g.drawString(text.split("/")[0], 20, 200);
-            g.drawString(text.split(",")[0], 50, 365);
-            g.setFont(new Font("TH SarabunPSK", Font.BOLD, 20));
-            g.drawString(text.split(",")[1], 50, 385);
-
-            g.dispose();
-            ImageIO.write(image, "png", new File(fileName));
-        } catch (Exception e) {
-            e.printStackTrace();
+        LabelJob job = LabelJob.parse(text);
+        RenderOptions render = new RenderOptions();
+        byte[] png = job.render(render, null, null);
+        Assert.assertEquals("1000-0EPL-AGT-EVLIM00001-ทดสอบภาษาไทย สำเนา ล้ำ เย็น.png", job.getFileName(render));
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        Assert.assertEquals(400, image.getWidth());
+        Assert.assertEquals(Collections.<String>emptyList(), new LabelVerifier(1, 1, 4).check(job, render, null, png));
+    }
+
+    @Test
+    public void readExcelFile() throws Exception {
+        File file = folder.newFile("EQListforGenerateQRCodeMPKS.xlsx");
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        String[][] cells = {{"Plant", "X", "Y", "Equipment", "Description"},
+                {"BEB1", "1000", "0", "EPL-AGT-EVLIM00001", "Machine 001-001"},
+                {"BEB1", "1000", "0", "EPL-AGT-EVLIM00002", "เครื่องจักร"}};
+        for (int i = 0; i < cells.length; i++) {
+            Row row = sheet.createRow(i);
+            for (int j = 0; j < cells[i].length; j++) {
+                row.createCell(j).setCellValue(cells[i][j]);
+            }
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            workbook.write(out);
+        }
+
+        java.util.List<String> FLEQlist = QRCode.readExcelFile(file.getPath());
+
+        Assert.assertEquals(Arrays.asList("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+                "EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,เครื่องจักร"), FLEQlist);
+    }
+
+    @Test(expected = QRGenerationException.class)
+    public void shouldFailToReadAMissingExcelFile() {
+        QRCode.readExcelFile(new File(folder.getRoot(), "EQListMissing.xlsx").getPath());
+    }
+
+    @Test
+    public void shouldRenderLabelInSinglePass() throws Exception {
+        LabelText label = new LabelText("EQ", "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001", "Machine 001-001");
+        ByteArrayOutputStream stream = QRCode.from("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001").withSize(400, 400).withLabel(label).stream();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(stream.toByteArray()));
+        Assert.assertEquals(400, image.getWidth());
+        Assert.assertEquals(400, image.getHeight());
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        Assert.assertEquals("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001", new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @Test
+    public void shouldReencodeLabelsTheDetectorCannotFind() throws Exception {
+        // at the smallest version this code holds a finder-like pattern the detector settles on
+        String code = "EQ/BEB3/1000/2/EPL-AGT-EVLIM000014";
+        ByteArrayOutputStream stream = QRCode.from(code).withSize(400, 400)
+                .withLabel(new LabelText("EQ", code, "Machine 14")).stream();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(stream.toByteArray()));
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        Assert.assertEquals(code, new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @Test
+    public void shouldWriteSvgRunsCoveringExactlyTheDarkModules() throws Exception {
+        String code = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001";
+        QRCode qrCode = QRCode.from(code).withSize(400, 400).withLabel(new LabelText("EQ", code, "เครื่อง <1>"));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        qrCode.svg(stream);
+        String svg = stream.toString("UTF-8");
+        Assert.assertTrue(svg.contains("viewBox=\"0 0 400 400\""));
+        Assert.assertTrue(svg.contains(">เครื่อง &lt;1&gt;</text>"));
+
+        BitMatrix matrix = qrCode.createMatrix(code);
+        String[] transform = attribute(svg, "transform").split("[^0-9]+");
+        int left = Integer.parseInt(transform[1]);
+        int top = Integer.parseInt(transform[2]);
+        int module = Integer.parseInt(transform[3]);
+        boolean[][] painted = new boolean[400][400];
+        for (String run : attribute(svg, "d").split("z")) {
+            String[] parts = run.substring(1).split("[,hv]");
+            for (int dy = 0; dy < module; dy++) {
+                for (int dx = 0; dx < Integer.parseInt(parts[2]) * module; dx++) {
+                    painted[top + Integer.parseInt(parts[1]) * module + dy][left + Integer.parseInt(parts[0]) * module + dx] = true;
+                }
+            }
         }
+        for (int y = 0; y < 400; y++) {
+            for (int x = 0; x < 400; x++) {
+                Assert.assertEquals("pixel " + x + "," + y, matrix.get(x, y), painted[y][x]);
+            }
+        }
+    }
 
+    private String attribute(String svg, String name) {
+        int start = svg.indexOf(" " + name + "=\"") + name.length() + 3;
+        return svg.substring(start, svg.indexOf('"', start));
     }
 
-        @Test
-    public void readExcelFile() {
-        java.util.List<String> FLEQlist = QRCode.readExcelFile("/Users/nancom/Desktop/MPG/DOPR/FLEQ/EQListforGenerateQRCodeMPKS.xlsx");
+    @Test
+    public void shouldEncodeRepeatedPayloadOnce() throws Exception {
+        EncodeCache cache = new EncodeCache(16, 1024 * 1024);
+        String code = "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001";
+        byte[] first = QRCode.from(code).withLabel(new LabelText("EQ", code, "Machine 1")).withCache(cache).stream().toByteArray();
+        QRCode.from(code).withLabel(new LabelText("EQ", code, "Machine 2")).withCache(cache).stream();
+        byte[] again = QRCode.from(code).withLabel(new LabelText("EQ", code, "Machine 1")).withCache(cache).stream().toByteArray();
+        Assert.assertEquals(1, cache.getMatrixMisses());
+        Assert.assertEquals(1, cache.getMatrixHits());
+        Assert.assertEquals(1, cache.getImageHits());
+        Assert.assertArrayEquals(first, again);
     }
 
     @Test
@@ -0,0 +1,62 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RowSourcesTest {
+
+    @Test
+    public void shouldJoinCsvRecordsLikeWorkbookRows() {
+        String csv = "\uFEFFPlant,X,Y,Equipment,Description\r\n"
+                + "BEB1,1000,0,EPL-AGT-EVLIM00001,Machine 001-001\r\n"
+                + "\r\n"
+                + "BEB1,1000,2,EPL-AGT-EVLIM00002,\"Pump, \"\"main\"\"\"\r\n"
+                + "BEB1,1000,3,EPL-AGT-EVLIM00003,\n";
+
+        Assert.assertEquals(Arrays.asList(
+                "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+                "EQ/BEB1/1000/2/EPL-AGT-EVLIM00002,Pump, \"main\"",
+                "EQ/BEB1/1000/3/EPL-AGT-EVLIM00003,"),
+                read(new DelimitedRowReader(new StringReader(csv), ',', "EQ/", "test.csv", null)));
+    }
+
+    @Test
+    public void shouldReadTsvWithoutTrailingNewline() {
+        String tsv = "BEB1\t1000\t0\tEPL-AGT-EVLIM00001\tเครื่องจักร";
+
+        Assert.assertEquals(Arrays.asList("FL/BEB1/1000/0/EPL-AGT-EVLIM00001,เครื่องจักร"),
+                read(new DelimitedRowReader(new StringReader(tsv), '\t', "FL/", "test.tsv", null)));
+    }
+
+    @Test
+    public void shouldSkipBlankLinesOfText() {
+        String text = "\uFEFFEQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001\n\n  \nEQ/BEB1/1000/2/EPL-V1.0,Pump\n";
+
+        Assert.assertEquals(Arrays.asList(
+                "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+                "EQ/BEB1/1000/2/EPL-V1.0,Pump"),
+                read(new TextRowReader(new StringReader(text), "test.txt", null)));
+    }
+
+    @Test
+    public void shouldJudgeFormatAndTypeByName() {
+        Assert.assertEquals(RowSources.XLSX, RowSources.format("EQListforGenerateQRCode.XLSX"));
+        Assert.assertEquals(RowSources.CSV, RowSources.format("export.csv"));
+        Assert.assertEquals(RowSources.TSV, RowSources.format("export.tsv"));
+        Assert.assertEquals(RowSources.TEXT, RowSources.format(RowSources.STDIN));
+        Assert.assertEquals("FL/", RowSources.prefix("FLListforGenerateQRCode.csv"));
+    }
+
+    private List<String> read(RowSource source) {
+        List<String> rows = new ArrayList<>();
+        while (source.hasNext()) {
+            rows.add(source.next());
+        }
+        return rows;
+    }
+}
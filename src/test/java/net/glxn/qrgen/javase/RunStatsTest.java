@@ -0,0 +1,81 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RunStatsTest {
+
+    @Test
+    public void shouldBoundEveryValueWithinItsBucket() {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            long upper = RunStats.Histogram.upperBound(RunStats.Histogram.index(value));
+            Assert.assertTrue(value + " above " + upper, upper >= value);
+            Assert.assertTrue(value + " far below " + upper, upper <= value + value / 8);
+        }
+    }
+
+    @Test
+    public void shouldReportPercentilesOfTheRecordedValues() {
+        RunStats.Histogram histogram = new RunStats.Histogram();
+        Assert.assertEquals(0, histogram.percentile(50));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertNear(500000, histogram.percentile(50));
+        assertNear(990000, histogram.percentile(99));
+        assertNear(1000000, histogram.percentile(100));
+    }
+
+    @Test
+    public void shouldWriteEveryStageAsJson() throws Exception {
+        RunStats stats = new RunStats();
+        for (int i = 0; i < 3; i++) {
+            stats.record(Stage.PNG_ENCODE, System.nanoTime() - 2000000);
+            stats.recordOutput(1000);
+        }
+        stats.recordBytes(500);
+        stats.finish();
+
+        StringWriter out = new StringWriter();
+        stats.writeJson(out);
+        String json = out.toString();
+
+        Assert.assertTrue(json, json.startsWith("{\n") && json.endsWith("}\n}\n"));
+        Assert.assertTrue(json, json.contains("  \"labels\": 3,\n"));
+        Assert.assertTrue(json, json.contains("  \"bytesWritten\": 3500,\n"));
+        Matcher png = Pattern.compile("\"PNG_ENCODE\": \\{\"count\": 3, \"totalMillis\": (\\d+), \"p50Micros\": (\\d+),")
+                .matcher(json);
+        Assert.assertTrue(json, png.find());
+        Assert.assertTrue(json, Long.parseLong(png.group(1)) >= 6);
+        Assert.assertTrue(json, Long.parseLong(png.group(2)) >= 2000);
+        for (Stage stage : Stage.values()) {
+            Assert.assertTrue(stage.name(), json.contains("\"" + stage.name() + "\": {\"count\": "));
+        }
+        Assert.assertEquals(Stage.values().length - 1, json.split("\\},\n", -1).length - 1);
+    }
+
+    @Test
+    public void shouldPrintOnlyTheStagesThatRan() {
+        RunStats stats = new RunStats();
+        stats.record(Stage.CREATE_MATRIX, System.nanoTime() - 1000000);
+        stats.recordOutput(10);
+        stats.finish();
+
+        String[] lines = stats.toString().split("\\r?\\n");
+
+        Assert.assertEquals(2, lines.length);
+        Assert.assertTrue(lines[0], lines[0].startsWith("1 labels in "));
+        Assert.assertTrue(lines[0], lines[0].endsWith(", 10 bytes written"));
+        Assert.assertTrue(lines[1], lines[1].matches("CREATE_MATRIX  count +1  p50 +\\d+us  p99 +\\d+us"));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue(actual + " not within 12.5% above " + expected,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
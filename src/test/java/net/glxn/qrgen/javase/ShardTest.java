@@ -0,0 +1,129 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ShardTest {
+
+    private static final List<String> ROWS = Arrays.asList(
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,Machine 001-002",
+            "EQ/BEB1/1000/0/EPL-AGT-EVLIM00003,",
+            "not a row",
+            "FL/BEB1/1000/0/EPL-V1.05,Pump 1.0");
+
+    @Test
+    public void shouldPlaceEveryRowInExactlyOneShard() {
+        for (boolean byRow : new boolean[]{false, true}) {
+            for (int row = 0; row < ROWS.size(); row++) {
+                int owners = 0;
+                for (int i = 1; i <= 3; i++) {
+                    if (new Shard(i, 3, byRow).owns(row, ROWS.get(row))) {
+                        owners++;
+                    }
+                }
+                Assert.assertEquals(1, owners);
+            }
+        }
+    }
+
+    @Test
+    public void shouldPlaceRowsByEquipmentId() {
+        Shard shard = Shard.parse("2/4", false);
+        Assert.assertEquals(shard.owns(0, "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001"),
+                shard.owns(7, "FL/BEB2/2000/1/EPL-AGT-EVLIM00001,Renamed"));
+        Assert.assertEquals("EPL-AGT-EVLIM00001", Shard.equipmentId("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine"));
+        Assert.assertEquals(".shard-2-of-4", shard.getSuffix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectShardOutOfRange() {
+        Shard.parse("3/2", false);
+    }
+
+    @Test
+    public void shouldReportCompleteCoverage() throws Exception {
+        ShardMerge merge = merge(2, ROWS);
+
+        Assert.assertEquals(new ArrayList<String>(), merge.check(ROWS.iterator()));
+        Assert.assertEquals(2, merge.getSummaries().size());
+    }
+
+    @Test
+    public void shouldReportMissingAndChangedRows() throws Exception {
+        ShardMerge merge = merge(2, ROWS.subList(0, 4));
+        List<String> input = new ArrayList<>(ROWS);
+        input.set(1, "EQ/BEB1/1000/0/EPL-AGT-EVLIM00002,Machine 002");
+
+        List<String> problems = merge.check(input.iterator());
+
+        Assert.assertEquals(Arrays.asList("Row 1 of shard " + owner(2, 1, ROWS.get(1)) + "/2 was generated from a"
+                + " different row text", "Row 4 is not covered by any shard"), problems);
+    }
+
+    @Test
+    public void shouldReportMissingAndRepeatedShards() throws Exception {
+        ShardMerge merge = new ShardMerge();
+        add(merge, new Shard(1, 3, true), ROWS);
+        add(merge, new Shard(1, 3, true), ROWS);
+
+        List<String> problems = merge.check(ROWS.iterator());
+
+        Assert.assertTrue(problems.get(0), problems.get(0).contains("repeats shard 1/3"));
+        Assert.assertTrue(problems.contains("Shard 2/3 is missing"));
+        Assert.assertTrue(problems.contains("Shard 3/3 is missing"));
+    }
+
+    @Test
+    public void shouldReportCorruptRecords() throws Exception {
+        ShardMerge merge = new ShardMerge();
+        add(merge, "bad-header", ShardRecord.HEADER + "x/2 by id\n");
+        add(merge, "bad-lines", ShardRecord.HEADER + "1/1 by id\n0\t" + ShardRecord.checksum(ROWS.get(0))
+                + "\tgenerated\ta.png\nx\tabc\tgenerated\tb.png\n1\tab");
+
+        List<String> problems = merge.check(ROWS.subList(0, 1).iterator());
+
+        Assert.assertEquals(3, problems.size());
+        Assert.assertEquals("bad-header has a corrupt header :" + ShardRecord.HEADER + "x/2 by id", problems.get(0));
+        Assert.assertEquals("bad-lines line 3 is truncated or corrupt", problems.get(1));
+        Assert.assertEquals("bad-lines line 4 is truncated or corrupt", problems.get(2));
+    }
+
+    private static void add(ShardMerge merge, String source, String record) throws Exception {
+        merge.add(source, new StringReader(record));
+    }
+
+    private static ShardMerge merge(int count, List<String> rows) throws Exception {
+        ShardMerge merge = new ShardMerge();
+        for (int i = 1; i <= count; i++) {
+            add(merge, new Shard(i, count, false), rows);
+        }
+        return merge;
+    }
+
+    private static void add(ShardMerge merge, Shard shard, List<String> rows) throws Exception {
+        ShardRecord record = new ShardRecord(shard);
+        for (int row = 0; row < rows.size(); row++) {
+            if (shard.owns(row, rows.get(row))) {
+                record.add(row, rows.get(row), ShardRecord.GENERATED, "label-" + row + ".png");
+            }
+        }
+        merge.add(record.getFileName(), new InputStreamReader(new ByteArrayInputStream(record.toBytes()), "UTF-8"));
+    }
+
+    private static int owner(int count, int row, String text) {
+        for (int i = 1; i <= count; i++) {
+            if (new Shard(i, count, false).owns(row, text)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
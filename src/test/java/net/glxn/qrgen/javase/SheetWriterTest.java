@@ -0,0 +1,58 @@
+package net.glxn.qrgen.javase;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+public class SheetWriterTest {
+
+    @Test
+    public void shouldImposeLabelsPageByPage() throws Exception {
+        SheetLayout layout = new SheetLayout(100, 100, 300, 2, 2, 5, 1);
+        SheetWriter sheets = new SheetWriter(layout, PngEncoder.DEFAULT, "sheet");
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("sheet-0001.png", sheets.add(label(i)));
+        }
+        Assert.assertTrue(sheets.isFull());
+        byte[] png = sheets.finishPage();
+        Assert.assertTrue(sheets.isEmpty());
+        Assert.assertEquals("sheet-0002.png", sheets.add(label(4)));
+
+        Assert.assertTrue("resolution recorded", new String(png, Charset.forName("ISO-8859-1")).contains("pHYs"));
+        BufferedImage page = ImageIO.read(new ByteArrayInputStream(png));
+        Assert.assertEquals(1181, page.getWidth());
+        int size = layout.getLabelSize();
+        int bleed = layout.getBleed();
+        for (int slot = 0; slot < 4; slot++) {
+            BufferedImage label = label(slot);
+            for (int y = bleed + 1; y < size - bleed - 1; y++) {
+                for (int x = bleed + 1; x < size - bleed - 1; x++) {
+                    Assert.assertEquals("slot " + slot + " at " + x + "," + y,
+                            label.getRGB(x * label.getWidth() / size, y * label.getHeight() / size),
+                            page.getRGB(layout.getLabelX(slot) + x, layout.getLabelY(slot) + y));
+                }
+            }
+        }
+        BufferedImage cell = page.getSubimage(layout.getLabelX(0), layout.getLabelY(0), size, size);
+        Assert.assertEquals("EQ/BEB1/1000/0/EPL-AGT-EVLIM00000", new QRCodeReader().decode(
+                new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(cell)))).getText());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectGridWithoutRoom() {
+        new SheetLayout(210, 297, 300, 100, 100, 10, 2);
+    }
+
+    private static BufferedImage label(int i) {
+        String code = "EQ/BEB1/1000/0/EPL-AGT-EVLIM0000" + i;
+        return QRCode.from(code).withSize(400, 400).withLabel(new LabelText("EQ", code, "Machine " + i)).image();
+    }
+}
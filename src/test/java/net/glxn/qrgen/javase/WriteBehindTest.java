@@ -0,0 +1,59 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindTest {
+
+    @Test
+    public void shouldWriteEveryLabelAndReportFailures() throws Exception {
+        final List<String> stored = Collections.synchronizedList(new ArrayList<String>());
+        OutputSink sink = new OutputSink() {
+            @Override
+            public void write(String name, byte[] data) throws IOException {
+                if (name.equals("label-3.png")) {
+                    throw new IOException("disk full");
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                stored.add(name);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final AtomicInteger written = new AtomicInteger();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        RunStats stats = new RunStats();
+
+        WriteBehind writer = new WriteBehind(sink, 2, 2, stats);
+        for (int i = 0; i < 50; i++) {
+            writer.submit("label-" + i + ".png", new byte[]{(byte) i}, new WriteBehind.Callback() {
+                @Override
+                public void written(IOException error) {
+                    if (error == null) {
+                        written.incrementAndGet();
+                    } else {
+                        errors.add(error.getMessage());
+                    }
+                }
+            });
+        }
+        writer.shutdown();
+
+        Assert.assertEquals(49, stored.size());
+        Assert.assertEquals(49, written.get());
+        Assert.assertEquals(Collections.singletonList("disk full"), errors);
+        Assert.assertTrue("workers waited on the full queue", stats.getCount(Stage.WRITE_QUEUE) > 0);
+    }
+}
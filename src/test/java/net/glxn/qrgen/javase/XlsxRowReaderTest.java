@@ -0,0 +1,65 @@
+package net.glxn.qrgen.javase;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class XlsxRowReaderTest {
+
+    @Test
+    public void shouldJoinRowsLikeTheWorkbookReader() throws Exception {
+        File file = File.createTempFile("EQListforGenerateQRCode", ".xlsx");
+        file.deleteOnExit();
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        addRow(sheet, 0, "Plant", "X", "Y", "Equipment", "Description");
+        addRow(sheet, 1, "BEB1", 1000, 0, "EPL-AGT-EVLIM00001", "Machine 001-001");
+        addRow(sheet, 2, "BEB1", 1000, 2, "EPL-AGT-EVLIM00002", "เครื่องจักร");
+        addRow(sheet, 3, "BEB1", 1.05, 0, "EPL-V1.0", "Pump 1.0");
+        Sheet second = workbook.createSheet();
+        addRow(second, 0, "Plant", "X", "Y", "Equipment", "Description");
+        addRow(second, 1, "BEB2", 2000, 0, "EPL-AGT-EVLIM00004", "Machine 002-001");
+        FileOutputStream out = new FileOutputStream(file);
+        workbook.write(out);
+        out.close();
+
+        List<String> rows = new ArrayList<>();
+        XlsxRowReader reader = new XlsxRowReader(file.getAbsolutePath());
+        while (reader.hasNext()) {
+            rows.add(reader.next());
+        }
+
+        Assert.assertEquals(Arrays.asList(
+                "EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001",
+                "EQ/BEB1/1000/2/EPL-AGT-EVLIM00002,เครื่องจักร",
+                "EQ/BEB1/1.05/0/EPL-V1.0,Pump 1.0",
+                "EQ/BEB2/2000/0/EPL-AGT-EVLIM00004,Machine 002-001"), rows);
+
+        rows.clear();
+        reader = new XlsxRowReader(file.getAbsolutePath(), "FL/", 2, null);
+        while (reader.hasNext()) {
+            rows.add(reader.next());
+        }
+
+        Assert.assertEquals(Arrays.asList("FL/BEB2/2000/0/EPL-AGT-EVLIM00004,Machine 002-001"), rows);
+    }
+
+    private void addRow(Sheet sheet, int index, Object... values) {
+        Row row = sheet.createRow(index);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] instanceof Number) {
+                row.createCell(i).setCellValue(((Number) values[i]).doubleValue());
+            } else {
+                row.createCell(i).setCellValue((String) values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.glxn.qrgen.javase;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class ZipSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldStorePngEntriesAndAddTheIndexOnClose() throws Exception {
+        byte[] png = LabelJob.parse("EQ/BEB1/1000/0/EPL-AGT-EVLIM00001,Machine 001-001")
+                .render(new RenderOptions(), null, null);
+        byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes("UTF-8");
+        File file = folder.newFile("labels.zip");
+
+        ZipSink sink = new ZipSink(file);
+        sink.write("a.png", png);
+        sink.write("b.svg", svg);
+        sink.write("a.png", new byte[]{1, 2, 3});
+        sink.close();
+
+        try (ZipFile zip = new ZipFile(file)) {
+            List<String> names = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+            Assert.assertEquals(Arrays.asList("a.png", "b.svg", ZipSink.INDEX), names);
+
+            ZipEntry entry = zip.getEntry("a.png");
+            Assert.assertEquals(ZipEntry.STORED, entry.getMethod());
+            Assert.assertEquals(png.length, entry.getCompressedSize());
+            Assert.assertArrayEquals(png, read(zip, entry));
+            Assert.assertEquals(ZipEntry.DEFLATED, zip.getEntry("b.svg").getMethod());
+            Assert.assertArrayEquals(svg, read(zip, zip.getEntry("b.svg")));
+
+            Assert.assertEquals("a.png\t" + png.length + "\t" + crc(png) + "\n"
+                            + "b.svg\t" + svg.length + "\t" + crc(svg) + "\n",
+                    new String(read(zip, zip.getEntry(ZipSink.INDEX)), "UTF-8"));
+        }
+    }
+
+    private static String crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = zip.getInputStream(entry)) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return out.toByteArray();
+    }
+}